@@ -22,9 +22,12 @@ CREATE TABLE IF NOT EXISTS articles (
 	source integer not null references sources(id) ON DELETE CASCADE,
 	url text unique not null,
 	filename text default null,
-	keywords text default null
+	keywords text default null,
+	created timestamptz default now()
 );
 
+CREATE INDEX IF NOT EXISTS articles_created ON articles (created);
+
 CREATE TABLE IF NOT EXISTS users (
 	id serial primary key unique not null,
 	phone varchar(32) default null,
@@ -17,3 +17,11 @@ INSERT INTO validation_algorithms (algorithm, base_class, validator_type, parame
 		'{"instance" : {"url-prefix" : "http://swoogle.umbc.edu/StsService/GetStsSim?operation=api"}}')
 	ON CONFLICT (algorithm) DO UPDATE set (base_class, validator_type, parameters) = (EXCLUDED.base_class, EXCLUDED.validator_type, EXCLUDED.parameters);
 ALTER TABLE validation_algorithms ALTER COLUMN base_class DROP DEFAULT;
+
+DO $$ BEGIN --ADD COLUMN IF NOT EXISTS requires PostgreSQL 9.6, so this checks for the column directly to keep the script re-runnable on 9.5
+	IF NOT EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema() AND table_name = 'articles' AND column_name = 'created') THEN
+		ALTER TABLE articles ADD COLUMN created timestamptz default null; --Existing articles are dated from their files by ArticleManager.removeArticlesBefore
+	END IF;
+END $$;
+ALTER TABLE articles ALTER COLUMN created SET DEFAULT now();
+CREATE INDEX IF NOT EXISTS articles_created ON articles (created);
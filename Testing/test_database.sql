@@ -107,7 +107,8 @@ CREATE TABLE articles (
     source integer NOT NULL,
     url text NOT NULL,
     filename text,
-    keywords text
+    keywords text,
+    created timestamp with time zone DEFAULT now()
 );
 
 
@@ -4536,6 +4537,13 @@ ALTER TABLE ONLY articles
     ADD CONSTRAINT articles_url_key UNIQUE (url);
 
 
+--
+-- Name: articles_created; Type: INDEX; Schema: public; Owner: username-to-replace
+--
+
+CREATE INDEX articles_created ON articles USING btree (created);
+
+
 --
 -- Name: feeds_feed_name_key; Type: CONSTRAINT; Schema: public; Owner: username-to-replace
 --
@@ -0,0 +1,194 @@
+package eventdetection.common;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+
+/**
+ * JMH benchmarks for the throughput of each {@link AnnotatorProfile} on the untagged text of the most recently stored
+ * {@link Article Articles}, and for the cost of upgrading {@link Annotation Annotations} from each {@link AnnotatorProfile}
+ * to the next one. The {@link Article Articles} are loaded through an {@link ArticleManager} using the configuration file
+ * given by the {@code configuration} parameter.<br>
+ * Each operation annotates every paragraph of every loaded {@link Article}; the {@code articles} and {@code tokens}
+ * counters report the per-{@link Article} and per-token rates. The models are loaded during the setup, so they are not
+ * part of the first warmup iteration.<br>
+ * Run with {@code java -jar benchmarks.jar AnnotatorProfileBenchmark [JMH options]}.
+ * 
+ * @author Joshua Lipstone
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AnnotatorProfileBenchmark {
+	
+	/**
+	 * The paragraphs of the stored {@link Article Articles}.
+	 * 
+	 * @author Joshua Lipstone
+	 */
+	@State(Scope.Benchmark)
+	public static class Paragraphs {
+		/**
+		 * The configuration file that describes the database and article storage
+		 */
+		@Param({"configuration.json"})
+		public String configuration;
+		/**
+		 * The maximum number of {@link Article Articles} to load
+		 */
+		@Param({"100"})
+		public int articles;
+		/**
+		 * The {@link AnnotatorProfile} to measure
+		 */
+		@Param({"TOKENS", "POS", "NER", "DEPENDENCIES", "FULL"})
+		public AnnotatorProfile profile;
+		
+		List<String> paragraphs;
+		int loaded;
+		
+		/**
+		 * Loads the {@link Article Articles}, splits their untagged text into paragraphs, and loads the models for the
+		 * {@link AnnotatorProfile}.
+		 * 
+		 * @throws IOException
+		 *             if the {@link Article Articles} cannot be loaded
+		 * @throws SQLException
+		 *             if an SQL error occurs
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws IOException, SQLException {
+			List<Article> stored = StoredArticles.load(configuration, articles, EnumSet.noneOf(ArticlePart.class));
+			paragraphs = new ArrayList<>();
+			for (Article article : stored) {
+				paragraphs.add(article.getUntaggedTitle());
+				Collections.addAll(paragraphs, POSTagger.splitParagraphs(article.getUntaggedText()));
+			}
+			loaded = stored.size();
+			POSTagger.getPipeline(profile);
+			System.out.println("\nArticles: " + loaded + ", paragraphs: " + paragraphs.size() + ", annotators: " + String.join(", ", profile.getAnnotators()));
+		}
+	}
+	
+	/**
+	 * The {@link Paragraphs} annotated with their {@link AnnotatorProfile} and the {@link AnnotatorProfile} that follows it.
+	 * 
+	 * @author Joshua Lipstone
+	 */
+	@State(Scope.Benchmark)
+	public static class Annotated {
+		Paragraphs paragraphs;
+		List<Annotation> documents;
+		AnnotatorProfile next;
+		
+		/**
+		 * Annotates the {@link Paragraphs} and loads the models for the next {@link AnnotatorProfile}.
+		 * 
+		 * @param paragraphs
+		 *            the {@link Paragraphs}
+		 */
+		@Setup(Level.Trial)
+		public void setUp(Paragraphs paragraphs) {
+			this.paragraphs = paragraphs;
+			documents = new ArrayList<>(paragraphs.paragraphs.size());
+			for (String paragraph : paragraphs.paragraphs)
+				documents.add(POSTagger.annotate(paragraph, paragraphs.profile));
+			AnnotatorProfile[] profiles = AnnotatorProfile.values();
+			next = profiles[Math.min(paragraphs.profile.ordinal() + 1, profiles.length - 1)];
+			if (next != paragraphs.profile) {
+				POSTagger.getPipeline(next);
+				System.out.println("\nUpgrading to " + next + " runs: " + String.join(", ", next.getAnnotatorsAfter(paragraphs.profile)));
+			}
+		}
+	}
+	
+	/**
+	 * Counts the {@link Article Articles} and tokens that were annotated so that JMH reports their rates.
+	 * 
+	 * @author Joshua Lipstone
+	 */
+	@State(Scope.Thread)
+	@AuxCounters
+	public static class Counters {
+		/**
+		 * The number of {@link Article Articles} that were annotated
+		 */
+		public long articles;
+		/**
+		 * The number of tokens that were annotated
+		 */
+		public long tokens;
+		
+		/**
+		 * Resets the counters at the start of each iteration.
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+			articles = tokens = 0;
+		}
+	}
+	
+	/**
+	 * Benchmarks annotating the {@link Paragraphs} with their {@link AnnotatorProfile}.
+	 * 
+	 * @param paragraphs
+	 *            the {@link Paragraphs}
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the last {@link Annotation}
+	 */
+	@Benchmark
+	public Annotation annotate(Paragraphs paragraphs, Counters counters) {
+		Annotation document = null;
+		for (String paragraph : paragraphs.paragraphs) {
+			document = POSTagger.annotate(paragraph, paragraphs.profile);
+			counters.tokens += document.get(TokensAnnotation.class).size();
+		}
+		counters.articles += paragraphs.loaded;
+		return document;
+	}
+	
+	/**
+	 * Benchmarks upgrading the {@link Annotated annotated paragraphs} to the next {@link AnnotatorProfile}. This does nothing
+	 * for {@link AnnotatorProfile#FULL}.
+	 * 
+	 * @param annotated
+	 *            the {@link Annotated annotated paragraphs}
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the last upgraded {@link Annotation}
+	 */
+	@Benchmark
+	public Annotation upgrade(Annotated annotated, Counters counters) {
+		Annotation document = null;
+		for (Annotation paragraph : annotated.documents) {
+			document = POSTagger.upgrade(paragraph, annotated.next);
+			counters.tokens += document.get(TokensAnnotation.class).size();
+		}
+		counters.articles += annotated.paragraphs.loaded;
+		return document;
+	}
+}
@@ -0,0 +1,347 @@
+package eventdetection.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks that compare {@link ArticleCodec} with Java serialization, and the {@link PayloadCompression} codecs with
+ * and without a {@link PayloadCompression.Dictionary}, on the most recently stored {@link Article Articles}. The
+ * {@link Article Articles} are loaded through an {@link ArticleManager} using the configuration file given by the
+ * {@code configuration} parameter, so they come from the segment stores as well as any legacy serialized data files.<br>
+ * Each operation processes every loaded {@link Article}; the {@code articles} and {@code bytes} counters report the
+ * per-{@link Article} and per-byte rates. If the {@code benchmark.dictionaries} system property is set, the trained
+ * {@link PayloadCompression.Dictionary} is saved in the directory that it names.<br>
+ * Run with {@code java -jar benchmarks.jar ArticleCodecBenchmark [JMH options]}.
+ * 
+ * @author Joshua Lipstone
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleCodecBenchmark {
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	
+	/**
+	 * The stored {@link Article Articles} and their encoded forms.
+	 * 
+	 * @author Joshua Lipstone
+	 */
+	@State(Scope.Benchmark)
+	public static class Corpus {
+		/**
+		 * The configuration file that describes the database and article storage
+		 */
+		@Param({"configuration.json"})
+		public String configuration;
+		/**
+		 * The maximum number of {@link Article Articles} to load
+		 */
+		@Param({"100"})
+		public int articles;
+		
+		List<Article> loaded;
+		List<byte[]> serialData, codecData;
+		long serialSize, codecSize;
+		
+		/**
+		 * Loads the {@link Article Articles} and encodes them with both formats.
+		 * 
+		 * @throws IOException
+		 *             if the {@link Article Articles} cannot be loaded or encoded
+		 * @throws SQLException
+		 *             if an SQL error occurs
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws IOException, SQLException {
+			loaded = StoredArticles.load(configuration, articles, EnumSet.allOf(ArticlePart.class));
+			for (Article article : loaded)
+				article.process();
+			serialData = new ArrayList<>(loaded.size());
+			codecData = new ArrayList<>(loaded.size());
+			long textSize = 0;
+			serialSize = codecSize = 0;
+			for (Article article : loaded) {
+				byte[] serial = serialize(article), codec = toArray(ArticleCodec.encode(article));
+				serialData.add(serial);
+				codecData.add(codec);
+				serialSize += serial.length;
+				codecSize += codec.length;
+				textSize += article.getUntaggedTitle().getBytes().length + article.getUntaggedText().getBytes().length;
+			}
+			System.out.printf("%nArticles: %d, untagged text: %d bytes, Java serialization: %d bytes (%.2fx text), ArticleCodec: %d bytes (%.2fx text)%n",
+					loaded.size(), textSize, serialSize, serialSize / (double) textSize, codecSize, codecSize / (double) textSize);
+		}
+	}
+	
+	/**
+	 * The {@link ArticleCodec} payloads of the {@link Corpus} compressed with a given {@link PayloadCompression} codec.
+	 * 
+	 * @author Joshua Lipstone
+	 */
+	@State(Scope.Benchmark)
+	public static class Compressed {
+		/**
+		 * The {@link PayloadCompression} codec to use
+		 */
+		@Param({"NONE", "DEFLATE", "LZF"})
+		public PayloadCompression compression;
+		/**
+		 * Whether to use a {@link PayloadCompression.Dictionary} trained on the {@link Corpus}. {@link PayloadCompression#NONE}
+		 * ignores it
+		 */
+		@Param({"false", "true"})
+		public boolean dictionary;
+		
+		Corpus corpus;
+		PayloadCompression.Dictionary trained;
+		List<ByteBuffer> payloads;
+		
+		/**
+		 * Trains the {@link PayloadCompression.Dictionary} if one is being used and compresses the payloads.
+		 * 
+		 * @param corpus
+		 *            the {@link Corpus}
+		 * @throws IOException
+		 *             if the {@link PayloadCompression.Dictionary} cannot be trained or saved
+		 */
+		@Setup(Level.Trial)
+		public void setUp(Corpus corpus) throws IOException {
+			this.corpus = corpus;
+			trained = null;
+			if (dictionary) {
+				List<ByteBuffer> samples = new ArrayList<>(corpus.codecData.size());
+				for (byte[] data : corpus.codecData)
+					samples.add(ByteBuffer.wrap(data));
+				trained = PayloadCompression.register(ArticleCodec.trainDictionary(samples, DICTIONARY_SIZE));
+				String directory = System.getProperty("benchmark.dictionaries");
+				if (directory != null)
+					System.out.println("\nSaved the " + trained.size() + " byte dictionary to " + trained.write(Paths.get(directory)));
+			}
+			payloads = new ArrayList<>(corpus.codecData.size());
+			long compressedSize = 0;
+			for (byte[] data : corpus.codecData) {
+				ByteBuffer payload = compression.compress(ByteBuffer.wrap(data), trained);
+				payloads.add(payload);
+				compressedSize += payload.remaining();
+			}
+			System.out.printf("%n%s%s: %.1f bytes per article (%.2fx ArticleCodec)%n", compression, trained == null ? "" : " with dictionary",
+					compressedSize / (double) payloads.size(), compressedSize / (double) corpus.codecSize);
+		}
+	}
+	
+	/**
+	 * Counts the {@link Article Articles} and uncompressed bytes that were processed so that JMH reports their rates.
+	 * 
+	 * @author Joshua Lipstone
+	 */
+	@State(Scope.Thread)
+	@AuxCounters
+	public static class Counters {
+		/**
+		 * The number of {@link Article Articles} that were processed
+		 */
+		public long articles;
+		/**
+		 * The number of uncompressed bytes that were processed
+		 */
+		public long bytes;
+		
+		/**
+		 * Resets the counters at the start of each iteration.
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+			articles = bytes = 0;
+		}
+		
+		void add(int count, long size) {
+			articles += count;
+			bytes += size;
+		}
+	}
+	
+	/**
+	 * Benchmarks writing the {@link Article Articles} with Java serialization.
+	 * 
+	 * @param corpus
+	 *            the {@link Corpus}
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the total number of bytes written
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Benchmark
+	public long serializationWrite(Corpus corpus, Counters counters) throws IOException {
+		long size = 0;
+		for (Article article : corpus.loaded)
+			size += serialize(article).length;
+		counters.add(corpus.loaded.size(), size);
+		return size;
+	}
+	
+	/**
+	 * Benchmarks reading the {@link Article Articles} with Java serialization.
+	 * 
+	 * @param corpus
+	 *            the {@link Corpus}
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the last {@link Article} read
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws ClassNotFoundException
+	 *             if a serialized {@link Article} refers to a class that cannot be found
+	 */
+	@Benchmark
+	public Article serializationRead(Corpus corpus, Counters counters) throws IOException, ClassNotFoundException {
+		Article article = null;
+		for (byte[] data : corpus.serialData)
+			article = deserialize(data);
+		counters.add(corpus.serialData.size(), corpus.serialSize);
+		return article;
+	}
+	
+	/**
+	 * Benchmarks encoding the {@link Article Articles} with {@link ArticleCodec#encode(Article)}.
+	 * 
+	 * @param corpus
+	 *            the {@link Corpus}
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the total number of bytes written
+	 */
+	@Benchmark
+	public long codecEncode(Corpus corpus, Counters counters) {
+		long size = 0;
+		for (Article article : corpus.loaded)
+			size += ArticleCodec.encode(article).remaining();
+		counters.add(corpus.loaded.size(), size);
+		return size;
+	}
+	
+	/**
+	 * Benchmarks decoding the {@link Article Articles} with {@link ArticleCodec#decode(ByteBuffer)}.
+	 * 
+	 * @param corpus
+	 *            the {@link Corpus}
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the last {@link Article} decoded
+	 * @throws IOException
+	 *             if a payload is malformed
+	 */
+	@Benchmark
+	public Article codecDecode(Corpus corpus, Counters counters) throws IOException {
+		Article article = null;
+		for (byte[] data : corpus.codecData)
+			article = ArticleCodec.decode(ByteBuffer.wrap(data));
+		counters.add(corpus.codecData.size(), corpus.codecSize);
+		return article;
+	}
+	
+	/**
+	 * Benchmarks compressing the {@link ArticleCodec} payloads.
+	 * 
+	 * @param compressed
+	 *            the {@link Compressed} state that selects the codec
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the total number of compressed bytes
+	 */
+	@Benchmark
+	public long compress(Compressed compressed, Counters counters) {
+		long size = 0;
+		for (byte[] data : compressed.corpus.codecData)
+			size += compressed.compression.compress(ByteBuffer.wrap(data), compressed.trained).remaining();
+		counters.add(compressed.corpus.codecData.size(), compressed.corpus.codecSize);
+		return size;
+	}
+	
+	/**
+	 * Benchmarks decompressing the compressed {@link ArticleCodec} payloads.
+	 * 
+	 * @param compressed
+	 *            the {@link Compressed} payloads
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the total number of decompressed bytes
+	 * @throws IOException
+	 *             if a payload is malformed
+	 */
+	@Benchmark
+	public long decompress(Compressed compressed, Counters counters) throws IOException {
+		long size = 0;
+		for (ByteBuffer payload : compressed.payloads)
+			size += PayloadCompression.decompress(payload.duplicate()).remaining();
+		counters.add(compressed.payloads.size(), compressed.corpus.codecSize);
+		return size;
+	}
+	
+	/**
+	 * Benchmarks decompressing and decoding the compressed {@link ArticleCodec} payloads, which is what reading an
+	 * {@link Article} from a segment store does.
+	 * 
+	 * @param compressed
+	 *            the {@link Compressed} payloads
+	 * @param counters
+	 *            the {@link Counters}
+	 * @return the last {@link Article} decoded
+	 * @throws IOException
+	 *             if a payload is malformed
+	 */
+	@Benchmark
+	public Article decompressAndDecode(Compressed compressed, Counters counters) throws IOException {
+		Article article = null;
+		for (ByteBuffer payload : compressed.payloads)
+			article = ArticleCodec.decode(payload.duplicate());
+		counters.add(compressed.payloads.size(), compressed.corpus.codecSize);
+		return article;
+	}
+	
+	private static byte[] serialize(Article article) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(article);
+		}
+		return bytes.toByteArray();
+	}
+	
+	private static Article deserialize(byte[] data) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+			return (Article) in.readObject();
+		}
+	}
+	
+	private static byte[] toArray(ByteBuffer buffer) {
+		byte[] out = new byte[buffer.remaining()];
+		buffer.get(out);
+		return out;
+	}
+}
@@ -0,0 +1,147 @@
+package eventdetection.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends to and reads from a {@link SegmentStore} from several threads at once and then checks that the store is
+ * consistent. Readers only read records whose appends have returned, so any missing or corrupt record is an error. A second
+ * {@link SegmentStore} on the same directory reads concurrently to exercise refreshing.<br>
+ * It is built into benchmarks.jar along with the JMH benchmarks.<br>
+ * Usage:
+ * {@code java -cp benchmarks.jar eventdetection.common.SegmentStoreStress [directory] [writer threads] [reader threads] [records per writer]}
+ * 
+ * @author Joshua Lipstone
+ */
+public class SegmentStoreStress {
+	private static final long SEGMENT_SIZE = 256 * 1024; //Small segments so that segments are sealed while being read
+	
+	private SegmentStoreStress() {/* This is a static class */}
+	
+	/**
+	 * Runs the stress test and prints the results to {@link System#out}.
+	 * 
+	 * @param args
+	 *            the directory in which to create the store (a temporary directory by default), the number of writer
+	 *            threads, the number of reader threads, and the number of records that each writer appends, all of which are
+	 *            optional
+	 * @throws IOException
+	 *             if the store cannot be created
+	 * @throws InterruptedException
+	 *             if the main thread is interrupted while waiting for the workers
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path directory = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("segment-store-stress");
+		int writers = args.length > 1 ? Integer.parseInt(args[1]) : 4, readers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		int perWriter = args.length > 3 ? Integer.parseInt(args[3]) : 5000, total = writers * perWriter;
+		AtomicIntegerArray published = new AtomicIntegerArray(total);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		AtomicLong reads = new AtomicLong(0), misses = new AtomicLong(0), errors = new AtomicLong(0);
+		long start = System.nanoTime();
+		try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE); SegmentStore other = new SegmentStore(directory, SEGMENT_SIZE)) {
+			List<Thread> threads = new ArrayList<>();
+			for (int w = 0; w < writers; w++) {
+				int first = w * perWriter;
+				threads.add(new Thread(() -> {
+					try {
+						for (int id = first; id < first + perWriter; id++) {
+							store.append(id, payload(id));
+							published.set(id, 1);
+						}
+					}
+					catch (IOException e) {
+						errors.incrementAndGet();
+						e.printStackTrace();
+					}
+				}));
+			}
+			List<Thread> readerThreads = new ArrayList<>();
+			for (int r = 0; r < readers; r++) {
+				SegmentStore target = r % 2 == 0 ? store : other;
+				readerThreads.add(new Thread(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (writing.get()) {
+						int id = random.nextInt(total);
+						if (published.get(id) == 0 || (target == other && random.nextInt(16) != 0)) //Reads through the other store refresh it, so keep them rare
+							continue;
+						try {
+							ByteBuffer record = target.read(id);
+							if (record == null && target == other) { //Misses only refresh the other store every MIN_REFRESH_INTERVAL
+								misses.incrementAndGet();
+								continue;
+							}
+							if (!check(id, record)) {
+								errors.incrementAndGet();
+								System.out.println("Record " + id + " was missing or corrupt while writing");
+							}
+							reads.incrementAndGet();
+						}
+						catch (IOException e) {
+							errors.incrementAndGet();
+							e.printStackTrace();
+						}
+					}
+				}));
+			}
+			threads.forEach(Thread::start);
+			readerThreads.forEach(Thread::start);
+			for (Thread thread : threads)
+				thread.join();
+			writing.set(false);
+			for (Thread thread : readerThreads)
+				thread.join();
+			Thread.sleep(SegmentStore.MIN_REFRESH_INTERVAL.toMillis());
+			for (int id = 0; id < total; id++) { //Every record must become visible through the other store once it can refresh again
+				if (!check(id, other.read(id))) {
+					errors.incrementAndGet();
+					System.out.println("Record " + id + " was missing or corrupt in the other store after writing");
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		
+		try (SegmentStore reopened = new SegmentStore(directory, SEGMENT_SIZE)) {
+			if (reopened.getIDs().size() != total) {
+				errors.incrementAndGet();
+				System.out.println("Expected " + total + " records after reopening but found " + reopened.getIDs().size());
+			}
+			for (int id = 0; id < total; id++) {
+				if (!check(id, reopened.read(id))) {
+					errors.incrementAndGet();
+					System.out.println("Record " + id + " was missing or corrupt after reopening");
+				}
+			}
+			List<Path> corrupt = reopened.verify();
+			if (corrupt.size() > 0) {
+				errors.incrementAndGet();
+				System.out.println("Segments with bad checksums: " + corrupt);
+			}
+		}
+		System.out.printf("%d records written by %d threads and %d concurrent reads (%d rate-limited misses) by %d threads in %.1f ms%n", total, writers, reads.get(), misses.get(), readers,
+				elapsed / 1e6);
+		System.out.println(errors.get() == 0 ? "The store is consistent" : errors.get() + " errors");
+		if (errors.get() > 0)
+			System.exit(1);
+	}
+	
+	private static ByteBuffer payload(int id) {
+		ByteBuffer payload = ByteBuffer.allocate(16 + id % 512);
+		while (payload.remaining() >= 4)
+			payload.putInt(id);
+		payload.clear();
+		return payload;
+	}
+	
+	private static boolean check(int id, ByteBuffer record) {
+		return record != null && record.equals(payload(id));
+	}
+}
@@ -0,0 +1,62 @@
+package eventdetection.common;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import toberumono.json.JSONObject;
+import toberumono.json.JSONSystem;
+
+/**
+ * Loads the {@link Article Articles} that the benchmarks in this package run on through an {@link ArticleManager}, so that
+ * they come from the same segment stores (or legacy serialized data files) and database that the pipeline reads.
+ * 
+ * @author Joshua Lipstone
+ */
+final class StoredArticles {
+	
+	private StoredArticles() {/* This is a static class */}
+	
+	/**
+	 * Loads the most recently stored {@link Article Articles}.
+	 * 
+	 * @param configuration
+	 *            the path to the configuration file that describes the database and article storage
+	 * @param limit
+	 *            the maximum number of {@link Article Articles} to load
+	 * @param parts
+	 *            the {@link ArticlePart parts} of the {@link Article Articles} to decode while loading them
+	 * @return the loaded {@link Article Articles} in descending order of ID
+	 * @throws IOException
+	 *             if the configuration file cannot be read, the {@link ArticleManager} cannot be closed, or no
+	 *             {@link Article Articles} were found
+	 * @throws SQLException
+	 *             if an SQL error occurs
+	 */
+	static List<Article> load(String configuration, int limit, Set<ArticlePart> parts) throws IOException, SQLException {
+		JSONObject config = (JSONObject) JSONSystem.loadJSON(Paths.get(configuration).toAbsolutePath());
+		DBConnection.configureConnection((JSONObject) config.get("database"));
+		List<Article> articles = new ArrayList<>(limit);
+		try (ArticleManager am = new ArticleManager(config)) {
+			List<Integer> ids = new ArrayList<>(limit);
+			try (PreparedStatement stmt = am.getConnection().prepareStatement("select id from " + am.getTable() + " order by id desc limit ?")) {
+				stmt.setInt(1, limit);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next())
+						ids.add(rs.getInt("id"));
+				}
+			}
+			if (ids.size() > 0) //An empty collection would load every article
+				am.loadArticles(ids, articles::add, ArticleManager.DEFAULT_MAX_IN_FLIGHT, parts);
+		}
+		if (articles.size() == 0)
+			throw new IOException("No stored articles were found using " + configuration + ".");
+		articles.sort((a, b) -> b.getID().compareTo(a.getID())); //loadArticles delivers them as they finish, and the sets must be the same on every run
+		return articles;
+	}
+}
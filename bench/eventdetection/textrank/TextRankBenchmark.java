@@ -0,0 +1,264 @@
+package eventdetection.textrank;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.CoreMap;
+import eventdetection.common.AnnotatorProfile;
+import eventdetection.common.POSTagger;
+import eventdetection.common.TokenTable;
+
+/**
+ * JMH benchmarks for the stages of {@link TextRank} that run on the validation path. Each benchmark runs on synthetic and
+ * recorded sets of 10, 100, and 1000 sentences. The synthetic sentences are drawn from a Zipf-distributed vocabulary with a
+ * fixed seed, and the recorded sentences are read from the text files in the directory given by the
+ * {@code benchmark.corpus} system property (the FAO documents that ship with the RAKE tutorial by default).<br>
+ * Run with {@code java -jar benchmarks.jar [JMH options]}. The GC profiler is always enabled so that the allocation rate
+ * is reported alongside the throughput.
+ * 
+ * @author Joshua Lipstone
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextRankBenchmark {
+	private static final String DEFAULT_CORPUS = "Keywords_Wordnet/RAKEtutorialmaster/data/docs/fao_test";
+	private static final int VOCABULARY_SIZE = 5000, MIN_SENTENCE_LENGTH = 8, MAX_SENTENCE_LENGTH = 32;
+	
+	/**
+	 * The sentence sets and the intermediate results that the benchmarks start from.
+	 * 
+	 * @author Joshua Lipstone
+	 */
+	@State(Scope.Benchmark)
+	public static class Sentences {
+		/**
+		 * The number of sentences in the set
+		 */
+		@Param({"10", "100", "1000"})
+		public int size;
+		/**
+		 * Where the sentences come from
+		 */
+		@Param({"synthetic", "recorded"})
+		public String corpus;
+		
+		TextRankOptions options;
+		List<CoreMap> sentences;
+		int[][] words;
+		double[] logLengths;
+		TextRankMatrix matrix;
+		double[] ranks;
+		Ranking<CoreMap> ranking;
+		
+		/**
+		 * Builds the sentence set and precomputes the inputs of the individual stages.
+		 * 
+		 * @throws IOException
+		 *             if the recorded sentences cannot be read
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			options = new TextRankOptions();
+			sentences = corpus.equals("recorded") ? recorded(size) : synthetic(size);
+			words = new int[size][];
+			logLengths = new double[size];
+			TokenTable vocabulary = new TokenTable();
+			for (int i = 0; i < size; i++) {
+				words[i] = TextRank.getWords(sentences.get(i), vocabulary);
+				logLengths[i] = Math.log(words[i].length);
+			}
+			matrix = TextRank.generateGraph(options, sentences).toMatrix();
+			ranks = new double[size];
+			ranking = TextRank.getRankedSentences(sentences, options);
+		}
+	}
+	
+	/**
+	 * Benchmarks building a {@link TextRankGraph}, including the extraction of each sentence's words and the comparison of
+	 * every pair of sentences.
+	 * 
+	 * @param state
+	 *            the {@link Sentences}
+	 * @return the {@link TextRankGraph}
+	 */
+	@Benchmark
+	public TextRankGraph<CoreMap> graphConstruction(Sentences state) {
+		return TextRank.generateGraph(state.options, state.sentences);
+	}
+	
+	/**
+	 * Benchmarks converting each sentence into its sorted word ids with a new {@link TokenTable}, as
+	 * {@link #graphConstruction(Sentences)} does.
+	 * 
+	 * @param state
+	 *            the {@link Sentences}
+	 * @return the word ids of the sentences
+	 */
+	@Benchmark
+	public int[][] words(Sentences state) {
+		int[][] out = new int[state.size][];
+		TokenTable vocabulary = new TokenTable();
+		for (int i = 0; i < out.length; i++)
+			out[i] = TextRank.getWords(state.sentences.get(i), vocabulary);
+		return out;
+	}
+	
+	/**
+	 * Benchmarks computing the similarity of every pair of sentences.
+	 * 
+	 * @param state
+	 *            the {@link Sentences}
+	 * @return the sum of the similarities
+	 */
+	@Benchmark
+	public double similarity(Sentences state) {
+		int[][] words = state.words;
+		double[] logLengths = state.logLengths;
+		double sum = 0.0;
+		for (int i = 0; i < words.length; i++)
+			for (int j = i + 1; j < words.length; j++)
+				sum += TextRank.similarity(words[i], logLengths[i], words[j], logLengths[j]);
+		return sum;
+	}
+	
+	/**
+	 * Benchmarks running the power iteration on a prebuilt {@link TextRankMatrix}.
+	 * 
+	 * @param state
+	 *            the {@link Sentences}
+	 * @return the {@link ConvergenceStatistics} of the run
+	 */
+	@Benchmark
+	public ConvergenceStatistics powerIteration(Sentences state) {
+		return state.matrix.rank(state.ranks, state.options);
+	}
+	
+	/**
+	 * Benchmarks sorting a precomputed ranking into descending order.
+	 * 
+	 * @param state
+	 *            the {@link Sentences}
+	 * @return the sorted ranking
+	 */
+	@Benchmark
+	public Ranking<CoreMap> sortedOutput(Sentences state) {
+		Ranking<CoreMap> sorted = new Ranking<>(state.ranking.size(), state.ranking.getStatistics());
+		sorted.addAll(state.ranking);
+		sorted.sort((a, b) -> b.getY().compareTo(a.getY()));
+		return sorted;
+	}
+	
+	/**
+	 * Benchmarks {@link TextRank#getSortedRankedSentences(List, TextRankOptions)}, which is what the validators call.
+	 * 
+	 * @param state
+	 *            the {@link Sentences}
+	 * @return the sorted ranking
+	 */
+	@Benchmark
+	public Ranking<CoreMap> endToEnd(Sentences state) {
+		return TextRank.getSortedRankedSentences(state.sentences, state.options);
+	}
+	
+	private static List<CoreMap> synthetic(int size) {
+		Random random = new Random(size);
+		double[] cumulative = new double[VOCABULARY_SIZE];
+		double total = 0.0;
+		for (int i = 0; i < VOCABULARY_SIZE; i++)
+			cumulative[i] = total += 1.0 / (i + 1);
+		List<CoreMap> out = new ArrayList<>(size);
+		for (int s = 0; s < size; s++) {
+			int length = MIN_SENTENCE_LENGTH + random.nextInt(MAX_SENTENCE_LENGTH - MIN_SENTENCE_LENGTH + 1);
+			List<CoreLabel> tokens = new ArrayList<>(length);
+			StringBuilder text = new StringBuilder();
+			for (int t = 0; t < length; t++) {
+				int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+				String word = "w" + (index < 0 ? -index - 1 : index);
+				CoreLabel token = new CoreLabel();
+				token.setWord(word);
+				token.setValue(word);
+				token.setOriginalText(word);
+				tokens.add(token);
+				text.append(word).append(' ');
+			}
+			Annotation sentence = new Annotation(text.toString().trim());
+			sentence.set(TokensAnnotation.class, tokens);
+			out.add(sentence);
+		}
+		return out;
+	}
+	
+	private static List<CoreMap> recorded(int size) throws IOException {
+		Path corpus = Paths.get(System.getProperty("benchmark.corpus", DEFAULT_CORPUS));
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(corpus, "*.txt")) {
+			stream.forEach(files::add);
+		}
+		Collections.sort(files); //DirectoryStream does not guarantee an order, and the sets must be the same on every run
+		List<CoreMap> out = new ArrayList<>(size);
+		for (Path file : files) {
+			String text = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1); //The FAO documents are not UTF-8
+			for (CoreMap sentence : POSTagger.annotate(text, AnnotatorProfile.TOKENS).get(SentencesAnnotation.class)) {
+				out.add(sentence);
+				if (out.size() == size)
+					return out;
+			}
+		}
+		throw new IOException(corpus + " does not contain " + size + " sentences.");
+	}
+	
+	/**
+	 * Runs the benchmarks with the GC profiler enabled.
+	 * 
+	 * @param args
+	 *            JMH command line options. If no benchmarks are selected, every benchmark in this class is run
+	 * @throws CommandLineOptionException
+	 *             if the options are not valid
+	 * @throws RunnerException
+	 *             if a benchmark fails
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(cmd).addProfiler(GCProfiler.class);
+		if (cmd.getIncludes().isEmpty())
+			options.include(TextRankBenchmark.class.getName());
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,386 @@
+package eventdetection.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import toberumono.structures.tuples.Pair;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import eventdetection.common.AnnotatorProfile.ProfileAnnotation;
+
+/**
+ * A content-addressed cache of {@link Annotation Annotations} for text that recurs across {@link Article Articles}, such
+ * as wire copy, bylines, and boilerplate. Entries are keyed by the SHA-1 hash of the whitespace-normalized text and the
+ * {@link AnnotatorProfile}. The in-memory tier is a least-recently-used map bounded by the estimated heap size of its
+ * entries. The optional on-disk tier holds one file per entry in the form used by {@link ArticleCodec}, so it only holds
+ * entries for {@link AnnotatorProfile AnnotatorProfiles} up to {@link ArticleCodec#STORED_PROFILE}. It is bounded by the total
+ * size of its files, which {@link #pruneDisk()} enforces by removing the least recently used files.<br>
+ * Cached {@link Annotation Annotations} are shared between callers, so they must not be modified. Use
+ * {@link POSTagger#upgrade(Annotation, AnnotatorProfile)} to add annotations to them.
+ * 
+ * @author Joshua Lipstone
+ */
+public class AnnotationCache {
+	/**
+	 * The default maximum estimated size of the in-memory tier in bytes (one sixteenth of the maximum heap size)
+	 */
+	public static final long DEFAULT_MAX_SIZE = Runtime.getRuntime().maxMemory() / 16;
+	/**
+	 * The default maximum total size of the files in the on-disk tier in bytes (1 GiB)
+	 */
+	public static final long DEFAULT_MAX_DISK_SIZE = 1L << 30;
+	/**
+	 * The extension of the files in the on-disk tier
+	 */
+	public static final String EXTENSION = ".ann";
+	
+	private static final Logger logger = LoggerFactory.getLogger("AnnotationCache");
+	private static final Pattern whitespace = Pattern.compile("[\\s\\u00A0]+");
+	
+	private final LinkedHashMap<String, Entry> entries;
+	private final ConcurrentHashMap<String, CompletableFuture<Annotation>> inFlight;
+	private final Path directory;
+	private final AtomicLong hits, diskHits, misses, evictions;
+	private final long maxDiskSize;
+	private long maxSize, size;
+	
+	/**
+	 * Constructs a new {@link AnnotationCache} whose on-disk tier is bounded by {@link #DEFAULT_MAX_DISK_SIZE}.
+	 * 
+	 * @param maxSize
+	 *            the maximum estimated size of the in-memory tier in bytes
+	 * @param directory
+	 *            the directory that holds the on-disk tier or {@code null} if there should not be an on-disk tier
+	 * @throws IOException
+	 *             if {@code directory} does not exist and cannot be created
+	 */
+	public AnnotationCache(long maxSize, Path directory) throws IOException {
+		this(maxSize, directory, DEFAULT_MAX_DISK_SIZE);
+	}
+	
+	/**
+	 * Constructs a new {@link AnnotationCache}.
+	 * 
+	 * @param maxSize
+	 *            the maximum estimated size of the in-memory tier in bytes
+	 * @param directory
+	 *            the directory that holds the on-disk tier or {@code null} if there should not be an on-disk tier
+	 * @param maxDiskSize
+	 *            the maximum total size of the files in the on-disk tier in bytes, which is enforced by
+	 *            {@link #pruneDisk()}
+	 * @throws IOException
+	 *             if {@code directory} does not exist and cannot be created
+	 */
+	public AnnotationCache(long maxSize, Path directory, long maxDiskSize) throws IOException {
+		entries = new LinkedHashMap<>(64, 0.75f, true);
+		inFlight = new ConcurrentHashMap<>();
+		this.directory = directory;
+		if (directory != null)
+			Files.createDirectories(directory);
+		hits = new AtomicLong(0);
+		diskHits = new AtomicLong(0);
+		misses = new AtomicLong(0);
+		evictions = new AtomicLong(0);
+		this.maxSize = maxSize;
+		this.maxDiskSize = maxDiskSize;
+		size = 0;
+	}
+	
+	/**
+	 * Normalizes the whitespace in the given {@code text}. Runs of whitespace are collapsed into a single space, and leading
+	 * and trailing whitespace is removed. Cached {@link Annotation Annotations} are of the normalized text.
+	 * 
+	 * @param text
+	 *            the text to normalize
+	 * @return the normalized text
+	 */
+	public static String normalize(String text) {
+		return whitespace.matcher(text).replaceAll(" ").trim();
+	}
+	
+	/**
+	 * Retrieves the {@link Annotation} of the given {@code text} with the given {@link AnnotatorProfile} from the cache,
+	 * annotating the text with {@link POSTagger#annotate(String, AnnotatorProfile)} and caching the result if it is not
+	 * already cached. Concurrent requests for the same text and {@link AnnotatorProfile} only annotate it once.
+	 * 
+	 * @param text
+	 *            the text to annotate
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to apply
+	 * @return the {@link Annotation} of the normalized {@code text}
+	 */
+	public Annotation annotate(String text, AnnotatorProfile profile) {
+		String normalized = normalize(text), key = key(normalized, profile);
+		Annotation document = get(key);
+		if (document != null) {
+			hits.incrementAndGet();
+			return document;
+		}
+		CompletableFuture<Annotation> pending = new CompletableFuture<>(), existing = inFlight.putIfAbsent(key, pending);
+		if (existing != null) {
+			hits.incrementAndGet();
+			return existing.join();
+		}
+		try {
+			if ((document = get(key)) != null) //Another request may have finished between the first check and this one
+				hits.incrementAndGet();
+			else if ((document = read(key, profile)) != null) {
+				diskHits.incrementAndGet();
+				put(key, document);
+			}
+			else {
+				misses.incrementAndGet();
+				document = POSTagger.annotate(normalized, profile);
+				write(key, profile, document);
+				put(key, document);
+			}
+			pending.complete(document);
+			return document;
+		}
+		catch (RuntimeException | Error e) {
+			pending.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			inFlight.remove(key);
+		}
+	}
+	
+	private synchronized Annotation get(String key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.document;
+	}
+	
+	private Annotation read(String key, AnnotatorProfile profile) {
+		if (directory == null || !ArticleCodec.STORED_PROFILE.includes(profile))
+			return null;
+		Path file = directory.resolve(key + EXTENSION);
+		if (!Files.exists(file))
+			return null;
+		Annotation document;
+		try {
+			document = ArticleCodec.decodeDocument(ByteBuffer.wrap(Files.readAllBytes(file)));
+			document.set(ProfileAnnotation.class, profile);
+		}
+		catch (NoSuchFileException e) { //It was pruned after the existence check
+			return null;
+		}
+		catch (IOException e) {
+			logger.warn("Unable to read the cached annotation in " + file + ".  Discarding it.", e);
+			try {
+				Files.deleteIfExists(file);
+			}
+			catch (IOException ex) {
+				logger.error("Unable to delete " + file, ex);
+			}
+			return null;
+		}
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis())); //Pruning removes the least recently used files first
+		}
+		catch (IOException e) {
+			logger.debug("Unable to update the modification time of " + file, e);
+		}
+		return document;
+	}
+	
+	private void write(String key, AnnotatorProfile profile, Annotation document) {
+		if (directory == null || !ArticleCodec.STORED_PROFILE.includes(profile))
+			return;
+		Path file = directory.resolve(key + EXTENSION);
+		try {
+			Path temp = Files.createTempFile(directory, key, ".tmp");
+			try {
+				Files.write(temp, ArticleCodec.encodeDocument(document).array());
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+		catch (IOException e) {
+			logger.warn("Unable to write the cached annotation to " + file, e);
+		}
+	}
+	
+	private void put(String key, Annotation document) {
+		long documentSize = ArticleCache.estimateSize(document) + 2 * document.toString().length();
+		synchronized (this) {
+			Entry old = entries.remove(key);
+			if (old != null)
+				size -= old.size;
+			if (documentSize > maxSize)
+				return;
+			entries.put(key, new Entry(document, documentSize));
+			size += documentSize;
+			evict();
+		}
+	}
+	
+	private static String key(String normalized, AnnotatorProfile profile) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(profile.name().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			byte[] hash = digest.digest(normalized.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(hash.length * 2);
+			for (byte b : hash)
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException e) { //Every Java platform is required to support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Removes every entry from the in-memory tier. The on-disk tier is not affected.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+	
+	/**
+	 * Removes the least recently used files from the on-disk tier until their total size is at most the maximum disk size.
+	 * Files that are read or written are marked as used by their modification times.
+	 * 
+	 * @return the number of files that were removed
+	 * @throws IOException
+	 *             if the on-disk tier cannot be listed
+	 */
+	public int pruneDisk() throws IOException {
+		if (directory == null || !Files.isDirectory(directory))
+			return 0;
+		List<Pair<Path, BasicFileAttributes>> files = new ArrayList<>();
+		long total = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+			for (Path file : stream) {
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+					files.add(new Pair<>(file, attributes));
+					total += attributes.size();
+				}
+				catch (NoSuchFileException e) {} //It was removed while the directory was being listed
+			}
+		}
+		if (total <= maxDiskSize)
+			return 0;
+		files.sort(Comparator.comparing(p -> p.getY().lastModifiedTime()));
+		int removed = 0;
+		for (Iterator<Pair<Path, BasicFileAttributes>> iter = files.iterator(); total > maxDiskSize && iter.hasNext();) {
+			Pair<Path, BasicFileAttributes> file = iter.next();
+			try {
+				if (Files.deleteIfExists(file.getX()))
+					removed++;
+				total -= file.getY().size();
+			}
+			catch (IOException e) {
+				logger.warn("Unable to delete the cached annotation in " + file.getX(), e);
+			}
+		}
+		logger.info("Removed " + removed + " cached annotations from " + directory + " (" + total + " bytes remain)");
+		return removed;
+	}
+	
+	/**
+	 * Changes the maximum size of the in-memory tier, evicting entries if necessary.
+	 * 
+	 * @param maxSize
+	 *            the new maximum estimated size of the in-memory tier in bytes
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+	
+	private void evict() {
+		for (Iterator<Entry> iter = entries.values().iterator(); size > maxSize && iter.hasNext();) {
+			size -= iter.next().size;
+			iter.remove();
+			evictions.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * @return the maximum total size of the files in the on-disk tier in bytes
+	 */
+	public long getMaxDiskSize() {
+		return maxDiskSize;
+	}
+	
+	/**
+	 * @return the directory that holds the on-disk tier or {@code null} if there is no on-disk tier
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * @return the number of requests that were answered from the in-memory tier or by waiting for a concurrent request for
+	 *         the same text
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * @return the number of requests that were answered from the on-disk tier
+	 */
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+	
+	/**
+	 * @return the number of requests that required the text to be annotated
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * @return the fraction of requests that did not require the text to be annotated
+	 */
+	public double getHitRate() {
+		long hits = this.hits.get() + diskHits.get(), total = hits + misses.get();
+		return total == 0 ? 0.0 : hits / (double) total;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return String.format("AnnotationCache [entries=%d, size=%d, max-size=%d, hits=%d, disk-hits=%d, misses=%d, evictions=%d, hit-rate=%.3f]", entries.size(), size,
+				maxSize, hits.get(), diskHits.get(), misses.get(), evictions.get(), getHitRate());
+	}
+	
+	private static final class Entry {
+		final Annotation document;
+		final long size;
+		
+		Entry(Annotation document, long size) {
+			this.document = document;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package eventdetection.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * Named sets of CoreNLP annotators, ordered from the cheapest to the most expensive. Each profile runs the annotators of the
+ * profiles before it plus its own, so an {@link Annotation} produced with one profile can be upgraded to a later one by
+ * running only the annotators that it is missing (see {@link POSTagger#upgrade(Annotation, AnnotatorProfile)}).
+ * 
+ * @author Joshua Lipstone
+ */
+public enum AnnotatorProfile {
+	/**
+	 * Tokens and sentences
+	 */
+	TOKENS("tokenize", "ssplit"),
+	/**
+	 * Adds PoS tags and lemmas
+	 */
+	POS("pos", "lemma"),
+	/**
+	 * Adds named entity tags
+	 */
+	NER("ner"),
+	/**
+	 * Adds the dependency graphs from the neural dependency parser. This is everything that {@link ArticleCodec} stores.
+	 */
+	DEPENDENCIES("depparse"),
+	/**
+	 * Adds constituency trees and coreference chains
+	 */
+	FULL("parse", "dcoref");
+	
+	private final List<String> annotators;
+	
+	private AnnotatorProfile(String... added) {
+		annotators = Collections.unmodifiableList(Arrays.asList(added));
+	}
+	
+	/**
+	 * @return the names of the annotators that the {@link AnnotatorProfile} runs in the order in which they are run
+	 */
+	public List<String> getAnnotators() {
+		return getAnnotatorsAfter(null);
+	}
+	
+	/**
+	 * Determines which annotators must be run to upgrade an {@link Annotation} from the given {@link AnnotatorProfile} to
+	 * this one.
+	 * 
+	 * @param from
+	 *            the {@link AnnotatorProfile} that has already been applied or {@code null} if none has been
+	 * @return the names of the annotators that this {@link AnnotatorProfile} runs and {@code from} does not in the order in
+	 *         which they must be run
+	 */
+	public List<String> getAnnotatorsAfter(AnnotatorProfile from) {
+		List<String> out = new ArrayList<>();
+		AnnotatorProfile[] profiles = values();
+		for (int i = from == null ? 0 : from.ordinal() + 1; i <= ordinal(); i++)
+			out.addAll(profiles[i].annotators);
+		return out;
+	}
+	
+	/**
+	 * @param other
+	 *            an {@link AnnotatorProfile}
+	 * @return {@code true} iff every annotator in {@code other} is also in this {@link AnnotatorProfile}
+	 */
+	public boolean includes(AnnotatorProfile other) {
+		return compareTo(other) >= 0;
+	}
+	
+	/**
+	 * Parses an {@link AnnotatorProfile} from its name ignoring case.
+	 * 
+	 * @param name
+	 *            the name of the {@link AnnotatorProfile}
+	 * @return the {@link AnnotatorProfile} with the given name
+	 * @throws IllegalArgumentException
+	 *             if there is no {@link AnnotatorProfile} with the given name
+	 */
+	public static AnnotatorProfile forName(String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+	
+	/**
+	 * The key under which {@link POSTagger} and {@link ArticleCodec} record the {@link AnnotatorProfile} that has been
+	 * applied to an {@link Annotation}. {@link Annotation Annotations} without it were produced by the original
+	 * {@link StanfordCoreNLP pipeline} and are treated as {@link AnnotatorProfile#FULL}.
+	 */
+	public static class ProfileAnnotation implements CoreAnnotation<AnnotatorProfile> {
+		@Override
+		public Class<AnnotatorProfile> getType() {
+			return AnnotatorProfile.class;
+		}
+	}
+}
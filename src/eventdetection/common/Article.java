@@ -1,9 +1,14 @@
 package eventdetection.common;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 import edu.stanford.nlp.pipeline.Annotation;
 
@@ -17,12 +22,15 @@ public class Article implements IDAble<Integer>, Serializable {
 	private static final long serialVersionUID = 1L;
 	
 	private final String[] titles, texts;
-	private Annotation title;
-	private Annotation[] text;
+	private volatile Annotation title;
+	private volatile Annotation[] text;
 	private final URL url;
 	private final Source source;
 	private final Integer id;
 	private Integer hashCode;
+	private transient ArticleCodec.Encoded encoded; //Holds the stored data while parts of it have not been decoded
+	private transient volatile TaggedText taggedTitle, taggedText; //The tagged strings are rendered from these on request
+	private transient volatile double[] sentenceRanks;
 	
 	/**
 	 * Initializes an {@link Article}
@@ -96,7 +104,7 @@ public class Article implements IDAble<Integer>, Serializable {
 		this(new String[]{title, null}, new String[]{text, null}, null, null, url, source, id);
 	}
 	
-	private Article(String[] titles, String[] texts, Annotation title, Annotation[] text, URL url, Source source, Integer id) { //Copy constructor
+	Article(String[] titles, String[] texts, Annotation title, Annotation[] text, URL url, Source source, Integer id) { //Copy constructor
 		this.titles = titles;
 		this.texts = texts;
 		this.title = title;
@@ -105,6 +113,12 @@ public class Article implements IDAble<Integer>, Serializable {
 		this.source = source;
 		this.id = id;
 		hashCode = this.id == null ? null : id.hashCode(); //IDs are unique
+		encoded = null;
+	}
+	
+	Article(String[] titles, String[] texts, ArticleCodec.Encoded encoded, URL url, Source source, Integer id) { //Used by ArticleCodec for lazy decoding
+		this(titles, texts, null, null, url, source, id);
+		this.encoded = encoded;
 	}
 	
 	/**
@@ -115,7 +129,14 @@ public class Article implements IDAble<Integer>, Serializable {
 	 * @return a shallow clone of the {@link Article} with the given {@code id}
 	 */
 	public Article copyWithID(int id) {
-		return new Article(titles, texts, title, text, url, source, id);
+		Article copy = new Article(titles, texts, title, text, url, source, id);
+		synchronized (this) {
+			copy.encoded = encoded;
+			copy.taggedTitle = taggedTitle;
+			copy.taggedText = taggedText;
+			copy.sentenceRanks = sentenceRanks;
+		}
+		return copy;
 	}
 	
 	/**
@@ -125,8 +146,8 @@ public class Article implements IDAble<Integer>, Serializable {
 	public final void process() {
 		getAnnotatedTitle();
 		getAnnotatedText();
-		getTaggedTitle();
-		getTaggedText();
+		getTaggedTitleTokens();
+		getTaggedTextTokens();
 	}
 	
 	/**
@@ -147,38 +168,187 @@ public class Article implements IDAble<Integer>, Serializable {
 	 * @return the PoS tagged title of the {@link Article}
 	 */
 	public final String getTaggedTitle() {
-		if (titles[1] == null)
-			titles[1] = POSTagger.tag(getAnnotatedTitle());
-		return titles[1];
+		return titles[1] != null ? titles[1] : getTaggedTitleTokens().toTaggedString();
 	}
 	
 	/**
 	 * @return the PoS tagged text of the {@link Article}
 	 */
 	public final String getTaggedText() {
-		if (texts[1] == null)
-			texts[1] = POSTagger.tagParagraphs(getAnnotatedText());
-		return texts[1];
+		return texts[1] != null ? texts[1] : getTaggedTextTokens().toTaggedString();
 	}
 	
 	/**
-	 * @return the {@link Annotation Annotated} title of the {@link Article}
+	 * @return the PoS tagged title of the {@link Article} as a {@link TaggedText}
+	 */
+	public final TaggedText getTaggedTitleTokens() {
+		if (taggedTitle == null)
+			taggedTitle = TaggedText.of(getAnnotatedTitle(AnnotatorProfile.POS));
+		return taggedTitle;
+	}
+	
+	/**
+	 * @return the PoS tagged text of the {@link Article} as a {@link TaggedText}
+	 */
+	public final TaggedText getTaggedTextTokens() {
+		if (taggedText == null)
+			taggedText = TaggedText.of(getAnnotatedText(AnnotatorProfile.POS));
+		return taggedText;
+	}
+	
+	/**
+	 * @return the {@link Annotation Annotated} title of the {@link Article} with at least the
+	 *         {@link AnnotatorProfile#DEPENDENCIES} {@link AnnotatorProfile}
 	 */
 	public final Annotation getAnnotatedTitle() {
-		if (title == null)
-			title = POSTagger.annotate(getUntaggedTitle());
+		return getAnnotatedTitle(AnnotatorProfile.DEPENDENCIES);
+	}
+	
+	/**
+	 * Retrieves the {@link Annotation Annotated} title of the {@link Article}. If the title has only been annotated with a
+	 * lighter {@link AnnotatorProfile}, it is replaced with an upgraded copy.
+	 * 
+	 * @param profile
+	 *            the lightest {@link AnnotatorProfile} that the returned {@link Annotation} must include
+	 * @return the {@link Annotation Annotated} title of the {@link Article}
+	 */
+	public final Annotation getAnnotatedTitle(AnnotatorProfile profile) {
+		Annotation title = this.title;
+		if (title == null || !POSTagger.getProfile(title).includes(profile)) {
+			synchronized (this) {
+				if (encoded != null) {
+					if (profile.includes(AnnotatorProfile.DEPENDENCIES))
+						decodeAll();
+					else if (this.title == null)
+						this.title = encoded.decodeTitle();
+				}
+				this.title = this.title == null ? POSTagger.annotateDocument(getUntaggedTitle(), profile) : POSTagger.upgrade(this.title, profile);
+				title = this.title;
+			}
+		}
 		return title;
 	}
 	
 	/**
-	 * @return the {@link Annotation Annotated} text of the {@link Article}
+	 * @return the {@link Annotation Annotated} text of the {@link Article} with at least the
+	 *         {@link AnnotatorProfile#DEPENDENCIES} {@link AnnotatorProfile}
 	 */
 	public final Annotation[] getAnnotatedText() {
-		if (text == null)
-			text = POSTagger.annotateParagraphs(getUntaggedText());
+		return getAnnotatedText(AnnotatorProfile.DEPENDENCIES);
+	}
+	
+	/**
+	 * Retrieves the {@link Annotation Annotated} text of the {@link Article}. If the text has only been annotated with a
+	 * lighter {@link AnnotatorProfile}, it is replaced with upgraded copies. If the {@link Article} was loaded from storage
+	 * and {@code profile} does not include {@link AnnotatorProfile#DEPENDENCIES}, this avoids decoding the dependency graphs.
+	 * 
+	 * @param profile
+	 *            the lightest {@link AnnotatorProfile} that the returned {@link Annotation Annotations} must include
+	 * @return the {@link Annotation Annotated} text of the {@link Article}
+	 */
+	public final Annotation[] getAnnotatedText(AnnotatorProfile profile) {
+		Annotation[] text = this.text;
+		if (text == null || !includes(text, profile)) {
+			synchronized (this) {
+				if (encoded != null) {
+					if (profile.includes(AnnotatorProfile.DEPENDENCIES))
+						decodeAll();
+					else if (this.text == null)
+						this.text = encoded.decodeText();
+				}
+				this.text = this.text == null ? POSTagger.annotateParagraphs(getUntaggedText(), profile) : POSTagger.upgradeParagraphs(this.text, profile);
+				text = this.text;
+			}
+		}
 		return text;
 	}
 	
+	/**
+	 * Annotates the titles and texts of the given {@link Article Articles} with the given {@link AnnotatorProfile} as one
+	 * batch so that the work is spread across all of the {@link POSTagger#setParallelism(int) annotation threads}.
+	 * {@link Article Articles} that have already been annotated or were loaded from storage are skipped, as are those whose
+	 * title or text cannot be annotated. Both are left to be annotated individually the next time they are used.
+	 * 
+	 * @param articles
+	 *            the {@link Article Articles} to annotate
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to apply
+	 */
+	static void annotateAll(Collection<Article> articles, AnnotatorProfile profile) {
+		List<Article> pending = new ArrayList<>();
+		List<String> documents = new ArrayList<>();
+		List<Integer> offsets = new ArrayList<>();
+		for (Article article : articles) {
+			synchronized (article) {
+				if (article.encoded != null || article.title != null || article.text != null)
+					continue;
+			}
+			pending.add(article);
+			offsets.add(documents.size());
+			documents.add(article.getUntaggedTitle());
+			documents.addAll(Arrays.asList(POSTagger.splitParagraphs(article.getUntaggedText())));
+		}
+		offsets.add(documents.size());
+		List<Annotation> annotated = POSTagger.annotateAll(documents, profile);
+		for (int i = 0; i < pending.size(); i++) {
+			List<Annotation> parts = annotated.subList(offsets.get(i), offsets.get(i + 1));
+			if (parts.contains(null))
+				continue;
+			Article article = pending.get(i);
+			synchronized (article) {
+				if (article.title == null && article.text == null) {
+					article.title = parts.get(0);
+					article.text = parts.subList(1, parts.size()).toArray(new Annotation[parts.size() - 1]);
+				}
+			}
+		}
+	}
+	
+	private static boolean includes(Annotation[] paragraphs, AnnotatorProfile profile) {
+		for (Annotation paragraph : paragraphs)
+			if (!POSTagger.getProfile(paragraph).includes(profile))
+				return false;
+		return true;
+	}
+	
+	private void decodeAll() { //Replace rather than modify the Annotations that might already be in use
+		Annotation[] documents = encoded.decodeAll();
+		title = documents[0];
+		text = Arrays.copyOfRange(documents, 1, documents.length);
+		encoded = null;
+	}
+	
+	/**
+	 * Retrieves the TextRank ranks of the sentences in the {@link Article Article's} text. These only depend on the
+	 * {@link Article}, so they are computed once (see {@link eventdetection.textrank.TextRank#rankArticle(Article)}) and
+	 * stored with it.
+	 * 
+	 * @return the rank of each sentence in the text in the order in which the sentences appear or {@code null} if the ranks
+	 *         have not been computed. The array must not be modified
+	 */
+	public final double[] getSentenceRanks() {
+		return sentenceRanks;
+	}
+	
+	/**
+	 * Sets the TextRank ranks of the sentences in the {@link Article Article's} text.
+	 * 
+	 * @param sentenceRanks
+	 *            the rank of each sentence in the text in the order in which the sentences appear
+	 * @see #getSentenceRanks()
+	 */
+	public final void setSentenceRanks(double[] sentenceRanks) {
+		this.sentenceRanks = sentenceRanks;
+	}
+	
+	/**
+	 * @return the size in bytes of the stored data from which parts of the {@link Article} have yet to be decoded or -1 if
+	 *         the {@link Article} has been fully decoded
+	 */
+	synchronized int getEncodedSize() {
+		return encoded == null ? -1 : encoded.size();
+	}
+	
 	/**
 	 * @return the {@link URL} of the full article
 	 */
@@ -201,6 +371,11 @@ public class Article implements IDAble<Integer>, Serializable {
 		return id;
 	}
 	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getAnnotatedText(); //Serialized Articles do not carry their stored data, so it must be decoded first
+		out.defaultWriteObject();
+	}
+	
 	@Override
 	public String toString() {
 		String out = "Title: " + getUntaggedTitle();
@@ -0,0 +1,254 @@
+package eventdetection.common;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * A process-wide, least-recently-used cache of deserialized {@link Article Articles} that is bounded by the estimated heap
+ * size of the cached {@link Article Articles} rather than by their number.
+ * 
+ * @author Joshua Lipstone
+ */
+public class ArticleCache {
+	/**
+	 * The default maximum estimated size of the shared {@link ArticleCache} in bytes (one quarter of the maximum heap size)
+	 */
+	public static final long DEFAULT_MAX_SIZE = Runtime.getRuntime().maxMemory() / 4;
+	
+	//Rough per-object heap costs used to estimate the size of an Article
+	private static final long ARTICLE_OVERHEAD = 512, SENTENCE_OVERHEAD = 256, TOKEN_SIZE = 640, EDGE_SIZE = 160, CHAR_SIZE = 2;
+	//The approximate ratio of the heap size of a fully decoded Article to the size of its encoded form
+	private static final long ENCODED_EXPANSION = 40;
+	
+	private static ArticleCache shared = null;
+	
+	private final LinkedHashMap<Integer, Entry> entries;
+	private final AtomicLong hits, misses, evictions;
+	private long maxSize, size;
+	
+	/**
+	 * Constructs a new {@link ArticleCache} with the given maximum size.
+	 * 
+	 * @param maxSize
+	 *            the maximum estimated size of the cached {@link Article Articles} in bytes
+	 */
+	public ArticleCache(long maxSize) {
+		entries = new LinkedHashMap<>(64, 0.75f, true);
+		hits = new AtomicLong(0);
+		misses = new AtomicLong(0);
+		evictions = new AtomicLong(0);
+		this.maxSize = maxSize;
+		size = 0;
+	}
+	
+	/**
+	 * @return the {@link ArticleCache} that is shared by every component in this process
+	 */
+	public static synchronized ArticleCache getShared() {
+		if (shared == null)
+			shared = new ArticleCache(DEFAULT_MAX_SIZE);
+		return shared;
+	}
+	
+	/**
+	 * Retrieves the {@link Article} with the given ID.
+	 * 
+	 * @param id
+	 *            the ID of the {@link Article}
+	 * @return the cached {@link Article} or {@code null} if it is not in the cache
+	 */
+	public synchronized Article get(int id) {
+		Entry entry = entries.get(id);
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.article;
+	}
+	
+	/**
+	 * Adds the given {@link Article} to the cache, evicting the least recently used {@link Article Articles} until the
+	 * cache is within its size limit. {@link Article Articles} without an ID and {@link Article Articles} that are larger
+	 * than the cache are not cached.
+	 * 
+	 * @param article
+	 *            the {@link Article} to add
+	 */
+	public void put(Article article) {
+		if (article.getID() == null)
+			return;
+		long articleSize = estimateSize(article); //This can be expensive, so it is done outside of the lock
+		synchronized (this) {
+			Entry old = entries.remove(article.getID());
+			if (old != null)
+				size -= old.size;
+			if (articleSize > maxSize)
+				return;
+			entries.put(article.getID(), new Entry(article, articleSize));
+			size += articleSize;
+			evict();
+		}
+	}
+	
+	/**
+	 * Removes the {@link Article} with the given ID from the cache.
+	 * 
+	 * @param id
+	 *            the ID of the {@link Article} to remove
+	 */
+	public synchronized void invalidate(int id) {
+		Entry old = entries.remove(id);
+		if (old != null)
+			size -= old.size;
+	}
+	
+	/**
+	 * Removes the {@link Article Articles} with the given IDs from the cache.
+	 * 
+	 * @param ids
+	 *            the IDs of the {@link Article Articles} to remove
+	 */
+	public synchronized void invalidateAll(Collection<Integer> ids) {
+		for (Integer id : ids)
+			invalidate(id);
+	}
+	
+	/**
+	 * Removes every {@link Article} from the cache.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+	
+	/**
+	 * Changes the maximum size of the cache, evicting {@link Article Articles} if necessary.
+	 * 
+	 * @param maxSize
+	 *            the new maximum estimated size of the cached {@link Article Articles} in bytes
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+	
+	private void evict() {
+		for (Iterator<Entry> iter = entries.values().iterator(); size > maxSize && iter.hasNext();) {
+			size -= iter.next().size;
+			iter.remove();
+			evictions.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * @return the maximum estimated size of the cached {@link Article Articles} in bytes
+	 */
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * @return the current estimated size of the cached {@link Article Articles} in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+	
+	/**
+	 * @return the number of cached {@link Article Articles}
+	 */
+	public synchronized int getCount() {
+		return entries.size();
+	}
+	
+	/**
+	 * @return the number of calls to {@link #get(int)} that found an {@link Article}
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * @return the number of calls to {@link #get(int)} that did not find an {@link Article}
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * @return the number of {@link Article Articles} that have been evicted to keep the cache within its size limit
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return "ArticleCache [articles=" + entries.size() + ", size=" + size + ", max-size=" + maxSize + ", hits=" + hits.get() + ", misses=" + misses.get() +
+				", evictions=" + evictions.get() + "]";
+	}
+	
+	/**
+	 * Estimates the heap size of the given {@link Article} from the length of its text and the number of sentences, tokens,
+	 * and dependency edges in its {@link Annotation Annotations}. If the {@link Article} has not been fully decoded, the size
+	 * of its encoded form is used instead so that the estimate does not force it to be decoded.
+	 * 
+	 * @param article
+	 *            the {@link Article}
+	 * @return the estimated heap size of the {@link Article} in bytes
+	 */
+	public static long estimateSize(Article article) {
+		long size = ARTICLE_OVERHEAD;
+		size += CHAR_SIZE * 2 * (article.getUntaggedTitle().length() + article.getUntaggedText().length()); //Each text is stored untagged and as part of an Annotation
+		int encodedSize = article.getEncodedSize();
+		if (encodedSize >= 0)
+			return size + ENCODED_EXPANSION * encodedSize;
+		size += estimateSize(article.getAnnotatedTitle(AnnotatorProfile.TOKENS));
+		for (Annotation paragraph : article.getAnnotatedText(AnnotatorProfile.TOKENS))
+			size += estimateSize(paragraph);
+		return size;
+	}
+	
+	static long estimateSize(Annotation document) {
+		List<CoreMap> sentences = document.get(SentencesAnnotation.class);
+		if (sentences == null)
+			return 0;
+		long size = 0;
+		for (CoreMap sentence : sentences) {
+			size += SENTENCE_OVERHEAD;
+			List<?> tokens = sentence.get(TokensAnnotation.class);
+			if (tokens != null)
+				size += TOKEN_SIZE * tokens.size();
+			size += EDGE_SIZE * (edgeCount(sentence.get(BasicDependenciesAnnotation.class)) + edgeCount(sentence.get(CollapsedDependenciesAnnotation.class)) +
+					edgeCount(sentence.get(CollapsedCCProcessedDependenciesAnnotation.class)));
+		}
+		return size;
+	}
+	
+	private static int edgeCount(SemanticGraph graph) {
+		return graph == null ? 0 : graph.edgeCount();
+	}
+	
+	private static final class Entry {
+		final Article article;
+		final long size;
+		
+		Entry(Article article, long size) {
+			this.article = article;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,816 @@
+package eventdetection.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.stanford.nlp.international.Language;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentenceIndexAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokenBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokenEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.TypesafeMap;
+import eventdetection.common.AnnotatorProfile.ProfileAnnotation;
+
+/**
+ * A versioned binary format for {@link Article Articles} that replaces Java serialization of the full CoreNLP object graph.
+ * The format stores the raw text, a per-article string table, token arrays (with PoS, NER, and lemma tag ids), sentence and
+ * paragraph offsets, the dependency graphs, and, if they have been computed, the ranks of the text's sentences (see
+ * {@link Article#getSentenceRanks()}). Constituency trees and coreference chains are not stored.<br>
+ * Every payload starts with {@link #MAGIC}, the format version, and a table of contents so that sections can be located
+ * without decoding the ones that precede them. Payloads that were compressed with {@link PayloadCompression} are
+ * decompressed transparently.
+ * 
+ * @author Joshua Lipstone
+ */
+public final class ArticleCodec {
+	/**
+	 * The first four bytes of every encoded {@link Article}
+	 */
+	public static final int MAGIC = 0x45444143; //"EDAC"
+	/**
+	 * The current version of the format
+	 */
+	public static final byte VERSION = 1;
+	/**
+	 * The heaviest {@link AnnotatorProfile} whose annotations the format stores
+	 */
+	public static final AnnotatorProfile STORED_PROFILE = AnnotatorProfile.DEPENDENCIES;
+	
+	static final byte SECTION_META = 1, SECTION_TEXT = 2, SECTION_STRINGS = 3, SECTION_TOKENS = 4, SECTION_DEPENDENCIES = 5, SECTION_RANKS = 6;
+	private static final byte[] SECTIONS = {SECTION_META, SECTION_TEXT, SECTION_STRINGS, SECTION_TOKENS, SECTION_DEPENDENCIES, SECTION_RANKS};
+	private static final int HEADER_SIZE = 4 + 1 + 1, TOC_ENTRY_SIZE = 1 + 4 + 4;
+	
+	private static final List<Class<? extends TypesafeMap.Key<SemanticGraph>>> GRAPHS = Arrays.asList(BasicDependenciesAnnotation.class,
+			CollapsedDependenciesAnnotation.class, CollapsedCCProcessedDependenciesAnnotation.class);
+	
+	private ArticleCodec() {/* This is a static class */}
+	
+	/**
+	 * Encodes the given {@link Article}. If the {@link Article} has not been {@link Article#process() processed}, it is
+	 * processed as part of the encoding.
+	 * 
+	 * @param article
+	 *            the {@link Article} to encode
+	 * @return a {@link ByteBuffer} holding the encoded {@link Article}, ready to be read
+	 */
+	public static ByteBuffer encode(Article article) {
+		Annotation title = article.getAnnotatedTitle(STORED_PROFILE);
+		Annotation[] text = article.getAnnotatedText(STORED_PROFILE);
+		double[] ranks = article.getSentenceRanks();
+		StringTable strings = new StringTable();
+		Output[] sections = new Output[ranks == null ? SECTIONS.length - 1 : SECTIONS.length]; //The ranks section is optional
+		
+		Output meta = sections[0] = new Output(64);
+		meta.writeNullableInt(article.getID());
+		meta.writeString(article.getURL() == null ? null : article.getURL().toString());
+		Source source = article.getSource();
+		meta.writeBoolean(source != null);
+		if (source != null) {
+			meta.writeSignedVarInt(source.getID());
+			meta.writeString(source.getName());
+			meta.writeDouble(source.getReliability());
+		}
+		
+		Output raw = sections[1] = new Output(article.getUntaggedTitle().length() + article.getUntaggedText().length() + 16);
+		raw.writeString(article.getUntaggedTitle());
+		raw.writeString(article.getUntaggedText());
+		
+		Output tokens = sections[3] = new Output(raw.position() * 2), dependencies = sections[4] = new Output(raw.position());
+		tokens.writeVarInt(text.length);
+		writeDocument(title, strings, tokens, dependencies);
+		for (Annotation paragraph : text)
+			writeDocument(paragraph, strings, tokens, dependencies);
+		
+		sections[2] = strings.write();
+		
+		if (ranks != null) {
+			Output rankings = sections[5] = new Output(ranks.length * 8 + 5);
+			rankings.writeVarInt(ranks.length);
+			for (double rank : ranks)
+				rankings.writeDouble(rank);
+		}
+		
+		int size = HEADER_SIZE + TOC_ENTRY_SIZE * sections.length;
+		for (Output section : sections)
+			size += section.position();
+		ByteBuffer out = ByteBuffer.allocate(size);
+		out.putInt(MAGIC).put(VERSION).put((byte) sections.length);
+		int offset = HEADER_SIZE + TOC_ENTRY_SIZE * sections.length;
+		for (int i = 0; i < sections.length; i++) {
+			out.put(SECTIONS[i]).putInt(offset).putInt(sections[i].position());
+			offset += sections[i].position();
+		}
+		for (Output section : sections)
+			out.put(section.buffer.array(), 0, section.position());
+		out.flip();
+		return out;
+	}
+	
+	/**
+	 * Decodes an {@link Article} from the given {@link ByteBuffer}. The {@link ByteBuffer ByteBuffer's} position is advanced
+	 * to the end of the encoded {@link Article}.
+	 * 
+	 * @param buffer
+	 *            a {@link ByteBuffer} whose position is at the start of an encoded {@link Article}
+	 * @return the decoded {@link Article}
+	 * @throws IOException
+	 *             if the data is not a valid encoded {@link Article} or was written by an unsupported version of the format
+	 */
+	public static Article decode(ByteBuffer buffer) throws IOException {
+		return decode(buffer, EnumSet.allOf(ArticlePart.class));
+	}
+	
+	/**
+	 * Decodes the given {@link ArticlePart parts} of an {@link Article} from the given {@link ByteBuffer}. The remaining
+	 * parts are decoded from the {@link ByteBuffer} the first time that they are used, so its contents must not be changed
+	 * while the {@link Article} is in use. The {@link ByteBuffer ByteBuffer's} position is advanced to the end of the
+	 * encoded {@link Article}.
+	 * 
+	 * @param buffer
+	 *            a {@link ByteBuffer} whose position is at the start of an encoded {@link Article}
+	 * @param parts
+	 *            the {@link ArticlePart parts} to decode immediately
+	 * @return the decoded {@link Article}
+	 * @throws IOException
+	 *             if the data is not a valid encoded {@link Article} or was written by an unsupported version of the format
+	 */
+	public static Article decode(ByteBuffer buffer, Set<ArticlePart> parts) throws IOException {
+		if (PayloadCompression.isCompressed(buffer))
+			return decode(PayloadCompression.decompress(buffer), parts);
+		try {
+			Map<Byte, ByteBuffer> sections = new HashMap<>();
+			int end = readSections(buffer.slice(), sections);
+			Article article = decodeParts(decode(sections, end), parts);
+			buffer.position(buffer.position() + end);
+			return article;
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("The encoded Article is truncated or corrupt.", e);
+		}
+	}
+	
+	/**
+	 * Encodes a single {@link Annotation} in the same form that the title and paragraphs take inside an encoded
+	 * {@link Article}. Only the annotations that {@link #STORED_PROFILE} produces are kept.
+	 * 
+	 * @param document
+	 *            the {@link Annotation} to encode
+	 * @return a {@link ByteBuffer} holding the encoded {@link Annotation}, ready to be read
+	 */
+	static ByteBuffer encodeDocument(Annotation document) {
+		StringTable strings = new StringTable();
+		Output tokens = new Output(document.toString().length() * 2), dependencies = new Output(document.toString().length());
+		writeDocument(document, strings, tokens, dependencies);
+		Output table = strings.write();
+		ByteBuffer out = ByteBuffer.allocate(4 + 4 * 3 + table.position() + tokens.position() + dependencies.position());
+		out.putInt(MAGIC).putInt(table.position()).putInt(tokens.position()).putInt(dependencies.position());
+		for (Output section : new Output[]{table, tokens, dependencies})
+			out.put(section.buffer.array(), 0, section.position());
+		out.flip();
+		return out;
+	}
+	
+	/**
+	 * Decodes an {@link Annotation} that was encoded with {@link #encodeDocument(Annotation)}.
+	 * 
+	 * @param buffer
+	 *            a {@link ByteBuffer} whose position is at the start of an encoded {@link Annotation}
+	 * @return the decoded {@link Annotation}
+	 * @throws IOException
+	 *             if the data is not a valid encoded {@link Annotation}
+	 */
+	static Annotation decodeDocument(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("The data is not an encoded Annotation.");
+			ByteBuffer[] sections = new ByteBuffer[3];
+			int[] lengths = {buffer.getInt(), buffer.getInt(), buffer.getInt()};
+			for (int i = 0; i < sections.length; i++) {
+				sections[i] = buffer.slice();
+				sections[i].limit(lengths[i]);
+				buffer.position(buffer.position() + lengths[i]);
+			}
+			return readDocument(readStrings(new Input(sections[0])), new Input(sections[1]), new Input(sections[2]));
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("The encoded Annotation is truncated or corrupt.", e);
+		}
+	}
+	
+	/**
+	 * Reads the table of contents of an encoded {@link Article}.
+	 * 
+	 * @param in
+	 *            a {@link ByteBuffer} that starts with an encoded {@link Article}
+	 * @param sections
+	 *            the {@link Map} into which the sections are placed by id
+	 * @return the length of the encoded {@link Article}
+	 * @throws IOException
+	 *             if the data is not an encoded {@link Article} or was written by an unsupported version of the format
+	 */
+	private static int readSections(ByteBuffer in, Map<Byte, ByteBuffer> sections) throws IOException {
+		if (in.getInt() != MAGIC)
+			throw new IOException("The data is not an encoded Article.");
+		byte version = in.get();
+		if (version > VERSION || version < 1)
+			throw new IOException("Unsupported Article format version: " + version);
+		int sectionCount = in.get(), end = in.position();
+		for (int i = 0; i < sectionCount; i++) {
+			byte id = in.get();
+			int offset = in.getInt(), length = in.getInt();
+			ByteBuffer section = in.duplicate();
+			section.limit(offset + length).position(offset);
+			sections.put(id, section.slice());
+			end = Math.max(end, offset + length);
+		}
+		return end;
+	}
+	
+	/**
+	 * Builds a {@link PayloadCompression.Dictionary} from the strings that are shared by the given encoded {@link Article
+	 * Articles}. Strings are ranked by how many bytes they would save across the sample and written in the same form as
+	 * the string table, with the most valuable strings at the end where they are cheapest to refer back to.
+	 * 
+	 * @param payloads
+	 *            a sample of encoded (and possibly compressed) {@link Article Articles}. Their positions are not changed
+	 * @param size
+	 *            the maximum size of the {@link PayloadCompression.Dictionary} in bytes
+	 * @return the {@link PayloadCompression.Dictionary}
+	 * @throws IOException
+	 *             if one of the payloads is not a valid encoded {@link Article}
+	 */
+	public static PayloadCompression.Dictionary trainDictionary(Iterable<ByteBuffer> payloads, int size) throws IOException {
+		Map<String, Integer> frequencies = new HashMap<>();
+		try {
+			for (ByteBuffer payload : payloads) {
+				Map<Byte, ByteBuffer> sections = new HashMap<>();
+				readSections(PayloadCompression.decompress(payload.duplicate()).slice(), sections);
+				for (String string : new HashSet<>(Arrays.asList(readStrings(section(sections, SECTION_STRINGS)))))
+					if (string != null)
+						frequencies.merge(string, 1, Integer::sum);
+			}
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("An encoded Article is truncated or corrupt.", e);
+		}
+		List<String> ranked = new ArrayList<>();
+		for (Map.Entry<String, Integer> entry : frequencies.entrySet())
+			if (entry.getValue() > 1) //Strings that only appear in one Article do not help
+				ranked.add(entry.getKey());
+		ranked.sort((a, b) -> Long.compare((long) frequencies.get(b) * b.length(), (long) frequencies.get(a) * a.length()));
+		List<String> chosen = new ArrayList<>();
+		int total = 0;
+		for (String string : ranked) {
+			int length = string.getBytes(StandardCharsets.UTF_8).length + 1;
+			if (total + length > size)
+				continue;
+			chosen.add(string);
+			total += length;
+		}
+		Output out = new Output(total + 8);
+		for (int i = chosen.size() - 1; i >= 0; i--)
+			out.writeString(chosen.get(i));
+		return new PayloadCompression.Dictionary(Arrays.copyOf(out.buffer.array(), out.position()));
+	}
+	
+	/**
+	 * Makes sure that the given {@link ArticlePart parts} of an {@link Article} have been decoded.
+	 * 
+	 * @param article
+	 *            the {@link Article}
+	 * @param parts
+	 *            the {@link ArticlePart parts} to decode
+	 * @return {@code article}
+	 */
+	static Article decodeParts(Article article, Set<ArticlePart> parts) {
+		if (parts.contains(ArticlePart.DEPENDENCIES))
+			article.getAnnotatedText(STORED_PROFILE);
+		else {
+			if (parts.contains(ArticlePart.TITLE))
+				article.getAnnotatedTitle(AnnotatorProfile.NER);
+			if (parts.contains(ArticlePart.TOKENS))
+				article.getAnnotatedText(AnnotatorProfile.NER);
+		}
+		return article;
+	}
+	
+	private static Article decode(Map<Byte, ByteBuffer> sections, int size) throws IOException {
+		Input meta = section(sections, SECTION_META), raw = section(sections, SECTION_TEXT);
+		Integer id = meta.readNullableInt();
+		String urlString = meta.readString();
+		URL url = null;
+		try {
+			url = urlString == null ? null : new URL(urlString);
+		}
+		catch (MalformedURLException e) {
+			throw new IOException("The encoded Article has an invalid URL.", e);
+		}
+		Source source = meta.readBoolean() ? new Source(meta.readSignedVarInt(), meta.readString(), meta.readDouble()) : null;
+		String untaggedTitle = raw.readString(), untaggedText = raw.readString();
+		for (byte section : new byte[]{SECTION_STRINGS, SECTION_TOKENS, SECTION_DEPENDENCIES})
+			section(sections, section); //Make sure that the lazily decoded sections exist
+		Article article = new Article(new String[]{untaggedTitle, null}, new String[]{untaggedText, null}, new Encoded(sections, size), url, source, id);
+		if (sections.containsKey(SECTION_RANKS)) { //Articles that were stored before sentence ranks were persisted do not have this section
+			Input rankings = section(sections, SECTION_RANKS);
+			double[] ranks = new double[rankings.readVarInt()];
+			for (int i = 0; i < ranks.length; i++)
+				ranks[i] = rankings.readDouble();
+			article.setSentenceRanks(ranks);
+		}
+		return article;
+	}
+	
+	/**
+	 * Writes the given {@link Article} to the given {@link WritableByteChannel}.
+	 * 
+	 * @param article
+	 *            the {@link Article} to write
+	 * @param channel
+	 *            the {@link WritableByteChannel} to which the encoded {@link Article} should be written
+	 * @return the number of bytes written
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static int write(Article article, WritableByteChannel channel) throws IOException {
+		ByteBuffer encoded = encode(article);
+		int size = encoded.remaining();
+		while (encoded.hasRemaining())
+			channel.write(encoded);
+		return size;
+	}
+	
+	/**
+	 * Writes the given {@link Article} to the file at the given {@link Path}, replacing the file if it already exists.
+	 * 
+	 * @param article
+	 *            the {@link Article} to write
+	 * @param path
+	 *            the {@link Path} to the file
+	 * @return the number of bytes written
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static int write(Article article, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			return write(article, channel);
+		}
+	}
+	
+	/**
+	 * Reads an {@link Article} from the file at the given {@link Path}.
+	 * 
+	 * @param path
+	 *            the {@link Path} to the file
+	 * @return the decoded {@link Article}
+	 * @throws IOException
+	 *             if an I/O error occurs or the file does not hold a valid encoded {@link Article}
+	 */
+	public static Article read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel, (int) channel.size());
+		}
+	}
+	
+	/**
+	 * Reads an {@link Article} that was encoded in {@code size} bytes from the given {@link ReadableByteChannel}.
+	 * 
+	 * @param channel
+	 *            the {@link ReadableByteChannel} from which to read
+	 * @param size
+	 *            the number of bytes that the encoded {@link Article} occupies
+	 * @return the decoded {@link Article}
+	 * @throws IOException
+	 *             if an I/O error occurs or the bytes do not hold a valid encoded {@link Article}
+	 */
+	public static Article read(ReadableByteChannel channel, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer) < 0)
+				throw new IOException("Unexpected end of data after " + buffer.position() + " of " + size + " bytes.");
+		buffer.flip();
+		return decode(buffer);
+	}
+	
+	/**
+	 * Determines whether the given {@link ByteBuffer} starts with an encoded {@link Article}. This does not change the
+	 * {@link ByteBuffer ByteBuffer's} position.
+	 * 
+	 * @param buffer
+	 *            the {@link ByteBuffer} to test
+	 * @return {@code true} iff the {@link ByteBuffer} starts with {@link #MAGIC} or holds a compressed payload
+	 */
+	public static boolean isEncoded(ByteBuffer buffer) {
+		return buffer.remaining() >= 4 && (buffer.getInt(buffer.position()) == MAGIC || PayloadCompression.isCompressed(buffer));
+	}
+	
+	private static Input section(Map<Byte, ByteBuffer> sections, byte id) throws IOException {
+		ByteBuffer section = sections.get(id);
+		if (section == null)
+			throw new IOException("The encoded Article is missing section " + id + ".");
+		return new Input(section.duplicate());
+	}
+	
+	private static void writeDocument(Annotation document, StringTable strings, Output tokens, Output dependencies) {
+		String text = document.toString();
+		tokens.writeString(text);
+		List<CoreMap> sentences = document.get(SentencesAnnotation.class);
+		if (sentences == null) {
+			tokens.writeVarInt(0);
+			return;
+		}
+		tokens.writeVarInt(sentences.size());
+		for (CoreMap sentence : sentences) {
+			int begin = sentence.get(CharacterOffsetBeginAnnotation.class), end = sentence.get(CharacterOffsetEndAnnotation.class);
+			tokens.writeVarInt(begin);
+			tokens.writeVarInt(end - begin);
+			List<CoreLabel> words = sentence.get(TokensAnnotation.class);
+			tokens.writeVarInt(words.size());
+			int previous = begin;
+			for (CoreLabel word : words) {
+				tokens.writeVarInt(strings.id(word.word()));
+				tokens.writeVarInt(word.originalText() == null || word.originalText().equals(word.word()) ? 0 : strings.id(word.originalText()) + 1);
+				tokens.writeVarInt(word.beginPosition() - previous);
+				tokens.writeVarInt(word.endPosition() - word.beginPosition());
+				previous = word.endPosition();
+				tokens.writeVarInt(strings.ref(word.before()));
+				tokens.writeVarInt(strings.ref(word.after()));
+				tokens.writeVarInt(strings.ref(word.tag()));
+				tokens.writeVarInt(strings.ref(word.ner()));
+				tokens.writeVarInt(strings.ref(word.lemma()));
+			}
+			for (Class<? extends TypesafeMap.Key<SemanticGraph>> key : GRAPHS)
+				writeGraph(sentence.get(key), strings, dependencies);
+		}
+	}
+	
+	private static void writeGraph(SemanticGraph graph, StringTable strings, Output out) {
+		if (graph == null) {
+			out.writeBoolean(false);
+			return;
+		}
+		out.writeBoolean(true);
+		int[] vertices = graph.vertexSet().stream().filter(v -> v.copyCount() == 0).mapToInt(IndexedWord::index).sorted().toArray();
+		out.writeVarInt(vertices.length);
+		int previous = 0;
+		for (int vertex : vertices) {
+			out.writeVarInt(vertex - previous);
+			previous = vertex;
+		}
+		out.writeVarInt(graph.getRoots().size());
+		for (IndexedWord root : graph.getRoots())
+			out.writeVarInt(root.index());
+		List<SemanticGraphEdge> edges = new ArrayList<>();
+		for (SemanticGraphEdge edge : graph.edgeIterable())
+			if (edge.getGovernor().copyCount() == 0 && edge.getDependent().copyCount() == 0) //Copy nodes only occur in enhanced graphs, which we do not generate
+				edges.add(edge);
+		out.writeVarInt(edges.size());
+		for (SemanticGraphEdge edge : edges) {
+			GrammaticalRelation relation = edge.getRelation();
+			out.writeVarInt(edge.getGovernor().index());
+			out.writeVarInt(edge.getDependent().index());
+			out.writeVarInt(strings.id(relation.getLanguage().name()));
+			out.writeVarInt(strings.id(relation.toString()));
+			out.writeBoolean(edge.isExtra());
+		}
+	}
+	
+	/**
+	 * Reads a document from the tokens section.
+	 * 
+	 * @param strings
+	 *            the {@link Article Article's} string table
+	 * @param tokens
+	 *            the tokens section
+	 * @param dependencies
+	 *            the dependencies section or {@code null} if the dependency graphs should not be read
+	 * @return the document as an {@link Annotation}
+	 */
+	private static Annotation readDocument(String[] strings, Input tokens, Input dependencies) {
+		String text = tokens.readString();
+		Annotation document = new Annotation(text);
+		int sentenceCount = tokens.readVarInt();
+		List<CoreMap> sentences = new ArrayList<>(sentenceCount);
+		List<CoreLabel> allTokens = new ArrayList<>();
+		for (int s = 0; s < sentenceCount; s++) {
+			int begin = tokens.readVarInt(), end = begin + tokens.readVarInt();
+			Annotation sentence = new Annotation(text.substring(begin, end));
+			int wordCount = tokens.readVarInt(), previous = begin;
+			List<CoreLabel> words = new ArrayList<>(wordCount);
+			for (int i = 0; i < wordCount; i++) {
+				CoreLabel word = new CoreLabel();
+				String w = strings[tokens.readVarInt()];
+				int original = tokens.readVarInt();
+				word.setWord(w);
+				word.setValue(w);
+				word.setOriginalText(original == 0 ? w : strings[original - 1]);
+				word.setBeginPosition(previous += tokens.readVarInt());
+				word.setEndPosition(previous += tokens.readVarInt());
+				word.setBefore(deref(strings, tokens.readVarInt()));
+				word.setAfter(deref(strings, tokens.readVarInt()));
+				word.setTag(deref(strings, tokens.readVarInt()));
+				word.setNER(deref(strings, tokens.readVarInt()));
+				word.setLemma(deref(strings, tokens.readVarInt()));
+				word.setIndex(i + 1);
+				word.setSentIndex(s);
+				words.add(word);
+			}
+			sentence.set(CharacterOffsetBeginAnnotation.class, begin);
+			sentence.set(CharacterOffsetEndAnnotation.class, end);
+			sentence.set(TokensAnnotation.class, words);
+			sentence.set(TokenBeginAnnotation.class, allTokens.size());
+			allTokens.addAll(words);
+			sentence.set(TokenEndAnnotation.class, allTokens.size());
+			sentence.set(SentenceIndexAnnotation.class, s);
+			for (Class<? extends TypesafeMap.Key<SemanticGraph>> key : GRAPHS) {
+				if (dependencies == null)
+					break;
+				SemanticGraph graph = readGraph(strings, words, dependencies);
+				if (graph != null)
+					sentence.set(key, graph);
+			}
+			sentences.add(sentence);
+		}
+		document.set(TokensAnnotation.class, allTokens);
+		document.set(SentencesAnnotation.class, sentences);
+		document.set(ProfileAnnotation.class, dependencies == null ? AnnotatorProfile.NER : STORED_PROFILE);
+		return document;
+	}
+	
+	private static SemanticGraph readGraph(String[] strings, List<CoreLabel> words, Input in) {
+		if (!in.readBoolean())
+			return null;
+		SemanticGraph graph = new SemanticGraph();
+		IndexedWord[] nodes = new IndexedWord[words.size() + 1];
+		for (int i = 0, count = in.readVarInt(), vertex = 0; i < count; i++) {
+			vertex += in.readVarInt();
+			graph.addVertex(nodes[vertex] = new IndexedWord(words.get(vertex - 1)));
+		}
+		List<IndexedWord> roots = new ArrayList<>();
+		for (int i = 0, count = in.readVarInt(); i < count; i++)
+			roots.add(nodes[in.readVarInt()]);
+		for (int i = 0, count = in.readVarInt(); i < count; i++) {
+			IndexedWord governor = nodes[in.readVarInt()], dependent = nodes[in.readVarInt()];
+			Language language = Language.valueOf(strings[in.readVarInt()]);
+			GrammaticalRelation relation = GrammaticalRelation.valueOf(language, strings[in.readVarInt()]);
+			graph.addEdge(governor, dependent, relation, Double.NEGATIVE_INFINITY, in.readBoolean());
+		}
+		graph.setRoots(roots);
+		return graph;
+	}
+	
+	private static String deref(String[] strings, int ref) {
+		return ref == 0 ? null : strings[ref - 1];
+	}
+	
+	private static String[] readStrings(Input in) {
+		String[] strings = new String[in.readVarInt()];
+		for (int i = 0; i < strings.length; i++)
+			strings[i] = in.readString();
+		return strings;
+	}
+	
+	/**
+	 * Holds the sections of an encoded {@link Article} whose decoding has been deferred.
+	 */
+	static final class Encoded {
+		private final Map<Byte, ByteBuffer> sections;
+		private final int size;
+		private String[] strings;
+		
+		Encoded(Map<Byte, ByteBuffer> sections, int size) {
+			this.sections = sections;
+			this.size = size;
+			strings = null;
+		}
+		
+		/**
+		 * @return the size of the encoded {@link Article} in bytes
+		 */
+		int size() {
+			return size;
+		}
+		
+		private Input section(byte id) {
+			try {
+				return ArticleCodec.section(sections, id);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		private synchronized String[] strings() {
+			if (strings == null)
+				strings = readStrings(section(SECTION_STRINGS));
+			return strings;
+		}
+		
+		/**
+		 * @return the title without its dependency graphs
+		 */
+		Annotation decodeTitle() {
+			Input tokens = section(SECTION_TOKENS);
+			tokens.readVarInt();
+			return readDocument(strings(), tokens, null);
+		}
+		
+		/**
+		 * @return the paragraphs of the text without their dependency graphs
+		 */
+		Annotation[] decodeText() {
+			Input tokens = section(SECTION_TOKENS);
+			Annotation[] text = new Annotation[tokens.readVarInt()];
+			String[] strings = strings();
+			readDocument(strings, tokens, null); //Skip the title
+			for (int i = 0; i < text.length; i++)
+				text[i] = readDocument(strings, tokens, null);
+			return text;
+		}
+		
+		/**
+		 * @return the title followed by the paragraphs of the text, all with their dependency graphs
+		 */
+		Annotation[] decodeAll() {
+			Input tokens = section(SECTION_TOKENS), dependencies = section(SECTION_DEPENDENCIES);
+			Annotation[] documents = new Annotation[tokens.readVarInt() + 1];
+			String[] strings = strings();
+			for (int i = 0; i < documents.length; i++)
+				documents[i] = readDocument(strings, tokens, dependencies);
+			return documents;
+		}
+	}
+	
+	/**
+	 * Assigns ids to the distinct {@link String Strings} in an {@link Article}.
+	 */
+	private static final class StringTable {
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+		
+		int id(String s) {
+			Integer id = ids.get(s);
+			if (id == null) {
+				ids.put(s, id = strings.size());
+				strings.add(s);
+			}
+			return id;
+		}
+		
+		int ref(String s) {
+			return s == null ? 0 : id(s) + 1;
+		}
+		
+		Output write() {
+			Output out = new Output(strings.size() * 8 + 8);
+			out.writeVarInt(strings.size());
+			for (String s : strings)
+				out.writeString(s);
+			return out;
+		}
+	}
+	
+	/**
+	 * A growable, heap-backed output buffer with variable-length integer support.
+	 */
+	static final class Output {
+		ByteBuffer buffer;
+		
+		Output(int initialSize) {
+			buffer = ByteBuffer.allocate(Math.max(initialSize, 16));
+		}
+		
+		private void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+				buffer.flip();
+				buffer = larger.put(buffer);
+			}
+		}
+		
+		int position() {
+			return buffer.position();
+		}
+		
+		void writeVarInt(int value) {
+			ensure(5);
+			while ((value & ~0x7F) != 0) {
+				buffer.put((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+		}
+		
+		void writeSignedVarInt(int value) {
+			writeVarInt((value << 1) ^ (value >> 31));
+		}
+		
+		void writeNullableInt(Integer value) {
+			writeBoolean(value != null);
+			if (value != null)
+				writeSignedVarInt(value);
+		}
+		
+		void writeBoolean(boolean value) {
+			ensure(1);
+			buffer.put((byte) (value ? 1 : 0));
+		}
+		
+		void writeDouble(double value) {
+			ensure(8);
+			buffer.putDouble(value);
+		}
+		
+		void writeString(String value) {
+			if (value == null) {
+				writeVarInt(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length + 1);
+			ensure(bytes.length);
+			buffer.put(bytes);
+		}
+	}
+	
+	/**
+	 * The reading counterpart to {@link Output}.
+	 */
+	static final class Input {
+		final ByteBuffer buffer;
+		
+		Input(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		int readVarInt() {
+			int value = 0, shift = 0;
+			byte b;
+			do {
+				b = buffer.get();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+		
+		int readSignedVarInt() {
+			int raw = readVarInt();
+			return (raw >>> 1) ^ -(raw & 1);
+		}
+		
+		Integer readNullableInt() {
+			return readBoolean() ? readSignedVarInt() : null;
+		}
+		
+		boolean readBoolean() {
+			return buffer.get() != 0;
+		}
+		
+		double readDouble() {
+			return buffer.getDouble();
+		}
+		
+		String readString() {
+			int length = readVarInt() - 1;
+			if (length < 0)
+				return null;
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
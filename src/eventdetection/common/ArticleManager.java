@@ -1,39 +1,59 @@
 package eventdetection.common;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import toberumono.json.JSONArray;
+import toberumono.json.JSONBoolean;
+import toberumono.json.JSONNumber;
 import toberumono.json.JSONObject;
 
+import eventdetection.textrank.TextRank;
+
 import static eventdetection.common.ThreadingUtils.pool;
 
 /**
@@ -44,11 +64,32 @@ import static eventdetection.common.ThreadingUtils.pool;
 public class ArticleManager implements Closeable {
 	private static final Logger logger = LoggerFactory.getLogger("ArticleManager");
 	
+	/**
+	 * The default maximum number of {@link Article Articles} that can be waiting for deserialization or delivery at once in
+	 * {@link #loadArticles(Collection, Consumer)}
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+	/**
+	 * The maximum number of IDs that are sent to the database in a single query when loading {@link Article Articles}
+	 */
+	public static final int ID_CHUNK_SIZE = 10000;
+	/**
+	 * The maximum number of {@link Article Articles} that are deleted from the database in a single statement
+	 */
+	public static final int DELETION_BATCH_SIZE = 10000;
+	
 	private final Connection connection;
 	private final String table;
 	private final Collection<Path> storage;
-	private final Instant articleTimeLimit;
-	private static final ReadWriteLock fsLock = new ReentrantReadWriteLock();
+	private final JSONObject deletionDelay;
+	private final long segmentSize;
+	private final Map<Path, SegmentStore> segmentStores;
+	private final ArticleCache cache;
+	private final Queue<Future<?>> backgroundTasks;
+	private final double scrubSampleRate;
+	private final PayloadCompression compression;
+	private final PayloadCompression.Dictionary dictionary;
+	private final Lock transactionLock;
 	private boolean closed;
 	
 	/**
@@ -93,7 +134,109 @@ public class ArticleManager implements Closeable {
 		this.connection = connection;
 		this.table = articleTable;
 		this.storage = ((JSONArray) paths.get("articles")).stream().collect(LinkedHashSet::new, (s, p) -> s.add(Paths.get(p.toString())), LinkedHashSet::addAll);
-		this.articleTimeLimit = computeOldest((JSONObject) articles.get("deletion-delay")).toInstant();
+		this.deletionDelay = (JSONObject) articles.get("deletion-delay");
+		long segmentSize = articles.containsKey("segment-size") ? ((JSONNumber<?>) articles.get("segment-size")).value().longValue() : SegmentStore.DEFAULT_SEGMENT_SIZE;
+		if (segmentSize <= 0 || segmentSize > SegmentStore.MAX_SEGMENT_SIZE) { //Segments are addressed with int offsets
+			long clamped = segmentSize <= 0 ? SegmentStore.DEFAULT_SEGMENT_SIZE : SegmentStore.MAX_SEGMENT_SIZE;
+			logger.warn("A segment-size of " + segmentSize + " bytes is not supported.  Using " + clamped + " instead.");
+			segmentSize = clamped;
+		}
+		this.segmentSize = segmentSize;
+		this.segmentStores = new LinkedHashMap<>();
+		this.cache = ArticleCache.getShared();
+		this.backgroundTasks = new ConcurrentLinkedQueue<>();
+		this.transactionLock = new ReentrantLock();
+		this.scrubSampleRate = articles.containsKey("scrub-sample-rate") ? ((JSONNumber<?>) articles.get("scrub-sample-rate")).value().doubleValue() : 0.0;
+		if (articles.containsKey("cache-size"))
+			cache.setMaxSize(((JSONNumber<?>) articles.get("cache-size")).value().longValue());
+		JSONObject posTagging = (JSONObject) articles.get("pos-tagging");
+		if (posTagging != null && posTagging.get("annotation-threads") instanceof JSONNumber)
+			POSTagger.setParallelism(((JSONNumber<?>) posTagging.get("annotation-threads")).value().intValue());
+		if (posTagging != null && posTagging.get("annotation-cache") instanceof JSONObject && POSTagger.getCache() == null)
+			configureAnnotationCache((JSONObject) posTagging.get("annotation-cache"));
+		this.compression = articles.containsKey("compression") ? PayloadCompression.valueOf(articles.get("compression").value().toString().toUpperCase()) : PayloadCompression.NONE;
+		this.dictionary = loadDictionaries(articles.containsKey("compression-dictionary") ? articles.get("compression-dictionary").value() : null);
+	}
+	
+	private static void configureAnnotationCache(JSONObject config) {
+		if (config.containsKey("enable") && !((JSONBoolean) config.get("enable")).value())
+			return;
+		long maxSize = config.get("max-size") instanceof JSONNumber ? ((JSONNumber<?>) config.get("max-size")).value().longValue() : AnnotationCache.DEFAULT_MAX_SIZE;
+		long maxDiskSize = config.get("max-disk-size") instanceof JSONNumber ? ((JSONNumber<?>) config.get("max-disk-size")).value().longValue() : AnnotationCache.DEFAULT_MAX_DISK_SIZE;
+		Object directory = config.containsKey("directory") ? config.get("directory").value() : null;
+		try {
+			POSTagger.setCache(new AnnotationCache(maxSize, directory == null ? null : Paths.get(directory.toString()), maxDiskSize));
+		}
+		catch (IOException e) {
+			logger.error("Unable to create the annotation cache in " + directory + ".  Annotations will not be cached.", e);
+		}
+	}
+	
+	/**
+	 * Registers every {@link PayloadCompression.Dictionary} in the storage {@link Path Paths} so that payloads compressed
+	 * with any of them can be read.
+	 * 
+	 * @param name
+	 *            the file name of the {@link PayloadCompression.Dictionary} to use when storing {@link Article Articles}
+	 *            or {@code null}
+	 * @return the named {@link PayloadCompression.Dictionary} or {@code null} if {@code name} is {@code null}
+	 */
+	private PayloadCompression.Dictionary loadDictionaries(Object name) {
+		PayloadCompression.Dictionary named = null;
+		for (Path store : storage) {
+			Path directory = store.resolve("dictionaries");
+			if (!Files.isDirectory(directory))
+				continue;
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + PayloadCompression.Dictionary.EXTENSION)) {
+				for (Path file : files) {
+					PayloadCompression.Dictionary dictionary = PayloadCompression.register(PayloadCompression.Dictionary.read(file));
+					if (name != null && file.getFileName().toString().equals(name.toString()))
+						named = dictionary;
+				}
+			}
+			catch (IOException e) {
+				logger.error("Unable to load the compression dictionaries in " + directory, e);
+			}
+		}
+		if (name != null && named == null)
+			logger.warn("Unable to find the compression dictionary " + name + ".  Articles will be compressed without a dictionary.");
+		return named;
+	}
+	
+	/**
+	 * Trains a {@link PayloadCompression.Dictionary} on a random sample of the stored {@link Article Articles} and saves it
+	 * in the first storage {@link Path}. The dictionary is not used for storing {@link Article Articles} until it is named
+	 * in the "compression-dictionary" field of the configuration file.
+	 * 
+	 * @param sampleSize
+	 *            the maximum number of {@link Article Articles} to sample
+	 * @param size
+	 *            the maximum size of the {@link PayloadCompression.Dictionary} in bytes
+	 * @return the {@link Path} to the saved {@link PayloadCompression.Dictionary}
+	 * @throws IOException
+	 *             if the stored {@link Article Articles} cannot be read or the {@link PayloadCompression.Dictionary} cannot
+	 *             be written
+	 */
+	public Path trainDictionary(int sampleSize, int size) throws IOException {
+		List<Integer> ids = new ArrayList<>();
+		List<ByteBuffer> sample = new ArrayList<>();
+		for (Path store : storage) {
+			SegmentStore segments = getSegmentStore(store, false);
+			if (segments == null)
+				continue;
+			ids.addAll(segments.getIDs());
+			Collections.shuffle(ids);
+			for (Integer id : ids.subList(0, Math.min(ids.size(), sampleSize - sample.size()))) {
+				ByteBuffer record = segments.read(id);
+				if (record != null)
+					sample.add(record);
+			}
+			ids.clear();
+		}
+		PayloadCompression.Dictionary trained = PayloadCompression.register(ArticleCodec.trainDictionary(sample, size));
+		Path path = trained.write(storage.iterator().next().resolve("dictionaries"));
+		logger.info("Trained a " + trained.size() + " byte compression dictionary on " + sample.size() + " articles and saved it to " + path);
+		return path;
 	}
 	
 	private static Calendar computeOldest(JSONObject deletionDelay) {
@@ -109,8 +252,10 @@ public class ArticleManager implements Closeable {
 	}
 	
 	/**
-	 * Removes all articles with a file creation date earlier than the oldest allowable time specified in the configuration
-	 * file.
+	 * Removes all articles that were stored earlier than the oldest allowable time specified in the configuration
+	 * file. The cutoff is recomputed relative to the current time on every call so that it keeps moving forward when the
+	 * {@link ArticleManager} is long-lived. The on-disk tier of the {@link AnnotationCache}, if there is one, is pruned
+	 * to its maximum size in the background.
 	 * 
 	 * @return the IDs of the removed articles
 	 * @throws SQLException
@@ -120,11 +265,15 @@ public class ArticleManager implements Closeable {
 	 * @see #removeArticlesBefore(Instant)
 	 */
 	public Collection<Integer> cleanUp() throws SQLException, IOException {
-		return removeArticlesBefore(articleTimeLimit);
+		AnnotationCache annotations = POSTagger.getCache();
+		if (annotations != null && annotations.getDirectory() != null)
+			addBackgroundTask(pool.submit(annotations::pruneDisk));
+		return removeArticlesBefore(computeOldest(deletionDelay).toInstant());
 	}
 	
 	/**
-	 * Removes all articles with a file creation date earlier than <tt>oldest</tt>.
+	 * Removes all articles that were stored earlier than <tt>oldest</tt>. Their files are deleted in the background; see
+	 * {@link #awaitBackgroundTasks()}.
 	 * 
 	 * @param oldest
 	 *            a {@link Calendar} containing the oldest date from which {@link Article Articles} should be kept
@@ -139,7 +288,8 @@ public class ArticleManager implements Closeable {
 	}
 	
 	/**
-	 * Removes all articles with a file creation date earlier than <tt>oldest</tt>.
+	 * Removes all articles that were stored earlier than <tt>oldest</tt>. Their files are deleted in the background; see
+	 * {@link #awaitBackgroundTasks()}.
 	 * 
 	 * @param oldest
 	 *            an {@link Instant} containing the oldest date from which {@link Article Articles} should be kept
@@ -150,39 +300,212 @@ public class ArticleManager implements Closeable {
 	 *             if an I/O error occurs
 	 */
 	public Collection<Integer> removeArticlesBefore(Instant oldest) throws SQLException, IOException {
-		String statement = "select * from " + table;
+		Collection<Integer> retired = new LinkedHashSet<>();
+		for (Path store : storage) {
+			SegmentStore segments = getSegmentStore(store, false);
+			if (segments != null)
+				retired.addAll(segments.retireBefore(oldest));
+		}
+		cache.invalidateAll(retired);
+		
 		Collection<Integer> removed = new LinkedHashSet<>();
-		try (PreparedStatement stmt = connection.prepareStatement(statement)) {
-			ResultSet rs = stmt.executeQuery();
-			while (rs.next()) { //While the next row is valid
-				boolean deleted = false, found = false;
-				for (Path store : storage) {
-					if (!Files.exists(store))
-						continue;
+		List<String> filenames = new ArrayList<>();
+		transactionLock.lock(); //These statements must not become part of a concurrent store's transaction
+		try {
+			dateUndatedArticles();
+			String statement = "delete from " + table + " where id in (select id from " + table + " where created < ? or id = any(?) limit " + DELETION_BATCH_SIZE +
+					") returning id, filename";
+			try (PreparedStatement stmt = connection.prepareStatement(statement)) {
+				stmt.setTimestamp(1, Timestamp.from(oldest));
+				stmt.setArray(2, connection.createArrayOf("integer", retired.toArray()));
+				int count;
+				do {
+					count = 0;
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							count++;
+							removed.add(rs.getInt("id"));
+							if (rs.getString("filename") != null)
+								filenames.add(rs.getString("filename"));
+						}
+					}
+				} while (count == DELETION_BATCH_SIZE);
+			}
+		}
+		finally {
+			transactionLock.unlock();
+		}
+		cache.invalidateAll(removed);
+		if (removed.size() > 0)
+			addBackgroundTask(pool.submit(() -> deleteArticleFiles(removed, filenames)));
+		return removed;
+	}
+	
+	/**
+	 * Sets the creation time of {@link Article Articles} that were stored before the {@code created} column existed to the
+	 * creation time of their tagged text files.
+	 * 
+	 * @throws SQLException
+	 *             if an SQL error occurs
+	 * @throws IOException
+	 *             if an I/O error occurs while reading a file's attributes
+	 */
+	private void dateUndatedArticles() throws SQLException, IOException {
+		try (PreparedStatement query = connection.prepareStatement("select id, filename from " + table + " where created is null");
+				PreparedStatement update = connection.prepareStatement("update " + table + " set created = ? where id = ?")) {
+			int count = 0;
+			try (ResultSet rs = query.executeQuery()) {
+				while (rs.next()) {
+					Instant created = Instant.EPOCH; //Articles without files are removed by the next deletion pass
 					String filename = rs.getString("filename");
+					for (Path store : storage) {
+						if (filename == null)
+							break;
+						Path path = store.resolve(filename);
+						if (!Files.exists(path))
+							continue;
+						created = Files.readAttributes(path, BasicFileAttributes.class).creationTime().toInstant();
+						break;
+					}
+					update.setTimestamp(1, Timestamp.from(created));
+					update.setInt(2, rs.getInt("id"));
+					update.addBatch();
+					count++;
+				}
+			}
+			if (count > 0) {
+				update.executeBatch();
+				logger.info("Set the creation time of " + count + " articles from their files");
+			}
+		}
+	}
+	
+	/**
+	 * Deletes the tagged text and serialized data files of removed {@link Article Articles}.
+	 * 
+	 * @param ids
+	 *            the IDs of the removed {@link Article Articles}
+	 * @param filenames
+	 *            the names of the removed {@link Article Articles'} tagged text files
+	 * @return {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private Void deleteArticleFiles(Collection<Integer> ids, Collection<String> filenames) throws IOException {
+		for (Path store : storage) {
+			SegmentStore segments = getSegmentStore(store, false);
+			if (segments != null)
+				for (Integer id : ids)
+					segments.remove(id); //The records themselves are reclaimed when their segments are retired
+			if (!Files.exists(store))
+				continue;
+			filenames.parallelStream().forEach(filename -> {
+				try {
 					Path path = store.resolve(filename);
-					if (!Files.exists(path))
-						continue;
-					found = true;
-					BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
-					if (attrs.creationTime().toInstant().compareTo(oldest) >= 0)
-						continue;
-					Files.delete(path);
-					
-					Path serialized = toSerializedPath(path);
-					if (Files.exists(serialized))
-						Files.delete(serialized);
-					deleted = true;
+					Files.deleteIfExists(path);
+					Files.deleteIfExists(toSerializedPath(path));
 				}
-				if (deleted || !found) {
-					try (Statement stm = connection.createStatement()) {
-						removed.add(rs.getInt("id"));
-						stm.executeUpdate("delete from " + table + " where id = " + rs.getLong("id"));
-					}
+				catch (IOException e) {
+					logger.warn("Unable to delete the files for " + filename, e);
+				}
+			});
+		}
+		logger.info("Deleted the files of " + ids.size() + " removed articles");
+		return null;
+	}
+	
+	/**
+	 * Fully decodes a random sample of the stored {@link Article Articles} to make sure that they can still be read. The
+	 * checksums that are verified on every read only show that the stored bytes have not changed since they were written.
+	 * 
+	 * @param sampleRate
+	 *            the fraction of the stored {@link Article Articles} to check, between 0 and 1
+	 * @return the IDs of the {@link Article Articles} that could not be read
+	 * @throws IOException
+	 *             if a segment store cannot be opened
+	 */
+	public List<Integer> scrub(double sampleRate) throws IOException {
+		List<Integer> corrupt = new ArrayList<>();
+		int checked = 0;
+		for (Path store : storage) {
+			SegmentStore segments = getSegmentStore(store, false);
+			if (segments == null)
+				continue;
+			for (Integer id : segments.getIDs()) {
+				if (ThreadLocalRandom.current().nextDouble() >= sampleRate)
+					continue;
+				checked++;
+				try {
+					ByteBuffer record = segments.read(id);
+					if (record != null)
+						ArticleCodec.decode(record);
+				}
+				catch (IOException | RuntimeException e) {
+					logger.error("The stored data for the article with id = " + id + " is corrupt", e);
+					corrupt.add(id);
 				}
 			}
 		}
-		return removed;
+		logger.info("Scrubbed " + checked + " stored articles and found " + corrupt.size() + " corrupt articles");
+		return corrupt;
+	}
+	
+	/**
+	 * Starts {@link #scrub(double) scrubbing} the stored {@link Article Articles} on the shared pool using the sample rate
+	 * from the configuration file. This does nothing if the sample rate is not positive.
+	 * 
+	 * @return a {@link Future} that holds the IDs of the {@link Article Articles} that could not be read or {@code null} if
+	 *         scrubbing is disabled
+	 * @see #awaitBackgroundTasks()
+	 */
+	public Future<List<Integer>> scrubInBackground() {
+		if (scrubSampleRate <= 0)
+			return null;
+		Future<List<Integer>> scrub = pool.submit(() -> scrub(scrubSampleRate));
+		addBackgroundTask(scrub);
+		return scrub;
+	}
+	
+	/**
+	 * Adds the given task to the background tasks after removing the ones that have already finished so that a long-lived
+	 * {@link ArticleManager} does not hold on to every task that it has ever started.
+	 */
+	private void addBackgroundTask(Future<?> task) {
+		for (Iterator<Future<?>> iter = backgroundTasks.iterator(); iter.hasNext();) {
+			Future<?> finished = iter.next();
+			if (!finished.isDone())
+				continue;
+			iter.remove();
+			try {
+				finished.get();
+			}
+			catch (InterruptedException | CancellationException e) { //The task is done, so get cannot block
+				continue;
+			}
+			catch (ExecutionException e) {
+				logger.warn("An error occurred in a background storage task", e.getCause());
+			}
+		}
+		backgroundTasks.add(task);
+	}
+	
+	/**
+	 * Waits for the file deletions started by {@link #removeArticlesBefore(Instant)} and the scrubs started by
+	 * {@link #scrubInBackground()} to finish.
+	 */
+	public void awaitBackgroundTasks() {
+		for (Future<?> cleanUp; (cleanUp = backgroundTasks.poll()) != null;) {
+			try {
+				cleanUp.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (ExecutionException e) {
+				logger.warn("An error occurred in a background storage task", e.getCause());
+			}
+		}
 	}
 	
 	/**
@@ -191,72 +514,262 @@ public class ArticleManager implements Closeable {
 	 * 
 	 * @param article
 	 *            the {@link Article} to store
-	 * @return the {@link Path} that points to the file in which the article was stored
+	 * @return the stored {@link Article} with its ID set or {@code null} if an {@link Article} with the same URL has already
+	 *         been stored
 	 * @throws SQLException
 	 *             if an issue with the SQL server occurs
 	 * @throws IOException
 	 *             if the storage directory does not exist and cannot be created or the article file cannot be written to
 	 *             disk
+	 * @see #storeAll(Collection)
+	 */
+	public Article store(Article article) throws SQLException, IOException {
+		List<Article> stored = storeAll(Collections.singletonList(article));
+		return stored.size() > 0 ? stored.get(0) : null;
+	}
+	
+	/**
+	 * Stores the given {@link Article Articles} in the first path in the {@link Collection} of storage {@link Path Paths} as
+	 * defined by its {@link Iterator}.<br>
+	 * {@link Article Articles} whose URLs are already in the database or repeated in the batch are dropped before any
+	 * natural language processing is done. The rest are processed concurrently, given IDs reserved from the database,
+	 * written to disk concurrently, and then inserted into the database with a single batch inside one transaction, which
+	 * skips any URLs that were stored by another thread or process after they were checked. Because the rows are
+	 * only committed after the files and segment records that they refer to have been written, concurrent loads never see
+	 * a partially stored {@link Article}. This method can be called from several threads at once; only the final
+	 * transaction is serialized. If anything goes wrong, the transaction is rolled back and any files that were written
+	 * are removed.
+	 * 
+	 * @param articles
+	 *            the {@link Article Articles} to store
+	 * @return the stored {@link Article Articles} with their IDs set in the order in which they were given.
+	 *         {@link Article Articles} whose URLs have already been stored and {@link Article Articles} that could not be
+	 *         processed are skipped
+	 * @throws SQLException
+	 *             if an issue with the SQL server occurs
+	 * @throws IOException
+	 *             if the storage directory does not exist and cannot be created or an article file cannot be written to
+	 *             disk
+	 */
+	public List<Article> storeAll(Collection<Article> articles) throws SQLException, IOException {
+		List<Article> processed = removeStoredURLs(articles); //Most of a crawl has been seen before, so skip it before processing
+		if (processed.size() == 0 || (processed = processAll(processed)).size() == 0)
+			return processed;
+		Path storagePath = storage.iterator().next();
+		SegmentStore segments = getSegmentStore(storagePath, true);
+		List<Article> stored = new ArrayList<>(), inserted;
+		List<Path> written = Collections.synchronizedList(new ArrayList<>());
+		try {
+			List<Integer> ids = reserveIDs(processed.size());
+			for (int i = 0; i < processed.size(); i++)
+				stored.add(processed.get(i).copyWithID(ids.get(i)));
+			List<Future<?>> writes = new ArrayList<>();
+			for (Article article : stored)
+				writes.add(pool.submit(() -> writeArticle(article, storagePath, segments, written)));
+			awaitAll(writes, "Unable to write an article to disk");
+			inserted = insertAll(stored);
+		}
+		catch (SQLException | IOException | RuntimeException e) {
+			for (Path path : written)
+				Files.deleteIfExists(path);
+			for (Article article : stored)
+				segments.remove(article.getID()); //The records are reclaimed when their segment is retired
+			throw e;
+		}
+		Set<Integer> insertedIDs = inserted.stream().map(Article::getID).collect(Collectors.toSet());
+		for (Article article : stored) {
+			if (insertedIDs.contains(article.getID())) {
+				cache.put(article);
+				logger.info("Stored: " + article.getUntaggedTitle());
+				continue;
+			}
+			logger.info("Skipping " + article.getUntaggedTitle() + " because its URL was stored concurrently");
+			segments.remove(article.getID());
+			Files.deleteIfExists(storagePath.resolve(makeFilename(article.getID(), article.getSource(), article.getUntaggedTitle())));
+		}
+		return inserted;
+	}
+	
+	/**
+	 * Reserves IDs for new {@link Article Articles} from the sequence that backs the ID column.
+	 * 
+	 * @param count
+	 *            the number of IDs to reserve
+	 * @return the reserved IDs
+	 * @throws SQLException
+	 *             if an SQL error occurs
 	 */
-	public synchronized Article store(Article article) throws SQLException, IOException {
-		synchronized (fsLock.writeLock()) {
-			Path storagePath = storage.iterator().next(), serializedPath = storagePath.resolve("serialized");
-			if (!Files.exists(serializedPath))
-				Files.createDirectories(serializedPath);
-			String statement = "insert into " + table + " (title, url, source) values (?, ?, ?)";
+	private List<Integer> reserveIDs(int count) throws SQLException {
+		List<Integer> ids = new ArrayList<>(count);
+		try (PreparedStatement stmt = connection.prepareStatement("select nextval(pg_get_serial_sequence(?, 'id')) from generate_series(1, ?)")) {
+			stmt.setString(1, table);
+			stmt.setInt(2, count);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next())
+					ids.add(rs.getInt(1));
+			}
+		}
+		if (ids.size() != count)
+			throw new SQLException("The database did not reserve an ID for every article.");
+		return ids;
+	}
+	
+	/**
+	 * Inserts the rows for the given {@link Article Articles}, whose files have already been written, in a single
+	 * transaction. {@link Article Articles} whose URLs were stored by another thread or process in the meantime are skipped.
+	 * 
+	 * @param articles
+	 *            the {@link Article Articles} to insert
+	 * @return the {@link Article Articles} that were inserted
+	 * @throws SQLException
+	 *             if an SQL error occurs, in which case none of the {@link Article Articles} were inserted
+	 */
+	private List<Article> insertAll(List<Article> articles) throws SQLException {
+		List<Article> inserted = new ArrayList<>();
+		transactionLock.lock(); //The Connection is shared, so only one transaction can be open on it at a time
+		try {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			String statement = "insert into " + table + " (id, title, url, source, filename) values (?, ?, ?, ?, ?) on conflict (url) do nothing";
 			try (PreparedStatement stmt = connection.prepareStatement(statement)) {
-				String untaggedTitle = article.getUntaggedTitle();
-				stmt.setString(1, untaggedTitle);
-				stmt.setString(2, article.getURL().toString());
-				stmt.setInt(3, article.getSource().getID());
-				stmt.executeUpdate();
-				String sql = "select * from " + table + " as arts group by arts.id having arts.id >= all (select a.id from " + table + " as a)";
-				try (PreparedStatement ps = connection.prepareStatement(sql)) {
-					ResultSet rs = ps.executeQuery();
-					if (!rs.next())
-						return null;
-					String filename = makeFilename(rs.getInt("id"), article.getSource(), untaggedTitle);
-					try (PreparedStatement stm = connection.prepareStatement("update " + table + " set filename = ? where id = ?")) {
-						stm.setString(1, filename);
-						stm.setLong(2, rs.getLong("id"));
-						stm.executeUpdate();
-					}
-					Path filePath = storagePath.resolve(filename), serialPath = serializedPath.resolve(toSerializedName(filename));
-					logger.info("Started Processing: " + article.getUntaggedTitle());
-					article = article.copyWithID(rs.getInt("id"));
-					try {
-						StringBuilder fileText = new StringBuilder(article.getTaggedTitle().length() + article.getTaggedText().length() + 14); //14 is the length of the section dividers
-						fileText.append("TITLE:\n").append(article.getTaggedTitle()).append("\nTEXT:\n").append(article.getTaggedText());
-						Files.write(filePath, fileText.toString().getBytes());
-						try (ObjectOutputStream serialOut = new ObjectOutputStream(new FileOutputStream(serialPath.toFile()))) {
-							article.process();
-							serialOut.writeObject(article);
-						}
-						catch (Throwable t) {
-							throw t;
-						}
-						try (ObjectInputStream serialIn = new ObjectInputStream(new FileInputStream(serialPath.toFile()))) {
-							serialIn.readObject(); //Test to be sure that the serialization worked
-						}
-						catch (Throwable t) {
-							throw new IOException("Serialization failed", t); //If anything goes wrong with reading the Article
-						}
-					}
-					catch (IOException e) {
-						try (Statement stm = DBConnection.getConnection().createStatement()) {
-							stm.executeUpdate("delete from " + table + " where id = " + rs.getLong("id"));
-						}
-						if (Files.exists(filePath))
-							Files.delete(filePath);
-						if (Files.exists(serialPath))
-							Files.delete(serialPath);
-						throw e;
-					}
-					logger.info("Finished Processing: " + article.getUntaggedTitle());
-					return article;
+				for (Article article : articles) {
+					stmt.setInt(1, article.getID());
+					stmt.setString(2, article.getUntaggedTitle());
+					stmt.setString(3, article.getURL().toString());
+					stmt.setInt(4, article.getSource().getID());
+					stmt.setString(5, makeFilename(article.getID(), article.getSource(), article.getUntaggedTitle()));
+					stmt.addBatch();
 				}
+				int[] counts = stmt.executeBatch();
+				for (int i = 0; i < counts.length; i++)
+					if (counts[i] != 0)
+						inserted.add(articles.get(i));
+				connection.commit();
+			}
+			catch (SQLException | RuntimeException e) {
+				try {
+					connection.rollback();
+				}
+				catch (SQLException ex) {
+					e.addSuppressed(ex);
+				}
+				throw e;
+			}
+			finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+		finally {
+			transactionLock.unlock();
+		}
+		return inserted;
+	}
+	
+	/**
+	 * Annotates the given {@link Article Articles} as a single batch and then runs the rest of the natural language
+	 * processing for each of them concurrently.
+	 * 
+	 * @param articles
+	 *            the {@link Article Articles} to process
+	 * @return the {@link Article Articles} that were successfully processed in the order in which they were given
+	 */
+	private List<Article> processAll(Collection<Article> articles) {
+		Article.annotateAll(articles, ArticleCodec.STORED_PROFILE);
+		if (POSTagger.getCache() != null)
+			logger.info("Annotated " + articles.size() + " articles (" + POSTagger.getCache() + ")");
+		List<Future<Article>> futures = new ArrayList<>();
+		for (Article article : articles)
+			futures.add(pool.submit(() -> {
+				logger.info("Started Processing: " + article.getUntaggedTitle());
+				article.process();
+				TextRank.rankArticle(article); //The ranks are stored with the article so that validators do not need to recompute them
+				logger.info("Finished Processing: " + article.getUntaggedTitle());
+				return article;
+			}));
+		List<Article> processed = new ArrayList<>();
+		for (Future<Article> future : futures) {
+			try {
+				processed.add(future.get());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch (ExecutionException e) {
+				logger.warn("Unable to process an article.  Skipping.", e.getCause());
+			}
+		}
+		return processed;
+	}
+	
+	/**
+	 * Removes {@link Article Articles} whose URLs are already in the database or appear earlier in the given
+	 * {@link Collection}.
+	 * 
+	 * @param articles
+	 *            the {@link Article Articles} to filter
+	 * @return the {@link Article Articles} with new URLs
+	 * @throws SQLException
+	 *             if an SQL error occurs
+	 */
+	private List<Article> removeStoredURLs(Collection<Article> articles) throws SQLException {
+		Set<String> seen = new HashSet<>();
+		try (PreparedStatement stmt = connection.prepareStatement("select url from " + table + " where url = any(?)")) {
+			stmt.setArray(1, connection.createArrayOf("text", articles.stream().map(a -> a.getURL().toString()).toArray()));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next())
+					seen.add(rs.getString("url"));
+			}
+		}
+		List<Article> out = new ArrayList<>();
+		for (Article article : articles) {
+			if (seen.add(article.getURL().toString()))
+				out.add(article);
+			else
+				logger.info("Skipping " + article.getUntaggedTitle() + " because its URL has already been stored");
+		}
+		return out;
+	}
+	
+	private Void writeArticle(Article article, Path storagePath, SegmentStore segments, List<Path> written) throws IOException {
+		Path filePath = storagePath.resolve(makeFilename(article.getID(), article.getSource(), article.getUntaggedTitle()));
+		String taggedTitle = article.getTaggedTitle(), taggedText = article.getTaggedText(); //These are rendered on each call
+		StringBuilder fileText = new StringBuilder(taggedTitle.length() + taggedText.length() + 14); //14 is the length of the section dividers
+		fileText.append("TITLE:\n").append(taggedTitle).append("\nTEXT:\n").append(taggedText);
+		written.add(filePath);
+		Files.write(filePath, fileText.toString().getBytes());
+		segments.append(article.getID(), compression.compress(ArticleCodec.encode(article), dictionary));
+		if (segments.read(article.getID()) == null) //This checks the record's length and checksum without decoding it
+			throw new IOException("Serialization failed for " + article.getUntaggedTitle());
+		return null;
+	}
+	
+	/**
+	 * Waits for all of the given {@link Future Futures} to complete and rethrows the first failure.
+	 * 
+	 * @param futures
+	 *            the {@link Future Futures} to wait for
+	 * @param message
+	 *            the message to use if the first failure must be wrapped in an {@link IOException}
+	 * @throws IOException
+	 *             if any of the {@link Future Futures} failed
+	 */
+	private static void awaitAll(List<Future<?>> futures, String message) throws IOException {
+		IOException failure = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (InterruptedException | ExecutionException e) {
+				Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+				if (failure == null)
+					failure = cause instanceof IOException ? (IOException) cause : new IOException(message, cause);
+				else
+					failure.addSuppressed(cause);
 			}
 		}
+		if (failure != null)
+			throw failure;
 	}
 	
 	/**
@@ -270,97 +783,186 @@ public class ArticleManager implements Closeable {
 	 * @throws IOException
 	 */
 	public Article load(int id) throws SQLException, ClassNotFoundException, IOException {
-		synchronized (fsLock.readLock()) {
-			try (PreparedStatement stmt = connection.prepareStatement("select * from articles where articles.id = ?")) {
-				stmt.setInt(1, id);
-				try (ResultSet rs = stmt.executeQuery()) {
-					if (!rs.next()) {
-						throw new IOException("Unable to locate an article with id = " + id + " in the SQL database.");
-					}
-					for (Path store : storage) {
-						if (!Files.exists(store))
-							continue;
-						String filename = rs.getString("filename");
-						Path serialized = ArticleManager.toSerializedPath(store.resolve(filename));
-						if (!Files.exists(serialized))
-							continue;
-						try (ObjectInputStream serialIn = new ObjectInputStream(new FileInputStream(serialized.toFile()))) {
-							Article article = (Article) serialIn.readObject();
-							return article;
-						}
-					}
+		return load(id, EnumSet.noneOf(ArticlePart.class));
+	}
+	
+	/**
+	 * Loads the {@link Article} with the given {@code id} from disk using the information in the SQL database. The given
+	 * {@link ArticlePart parts} are decoded immediately; the rest are decoded the first time that they are used.
+	 * 
+	 * @param id
+	 *            the ID of the {@link Article} to load
+	 * @param parts
+	 *            the {@link ArticlePart parts} of the {@link Article} to decode immediately
+	 * @return the {@link Article} if one was found, otherwise null
+	 * @throws SQLException
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 */
+	public Article load(int id, Set<ArticlePart> parts) throws SQLException, ClassNotFoundException, IOException {
+		try (PreparedStatement stmt = connection.prepareStatement("select * from articles where articles.id = ?")) {
+			stmt.setInt(1, id);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next()) {
+					throw new IOException("Unable to locate an article with id = " + id + " in the SQL database.");
 				}
+				Article article = readStored(id, rs.getString("filename"));
+				if (article != null)
+					return ArticleCodec.decodeParts(article, parts);
 			}
-			throw new IOException("Unable to locate an article with id = " + id + " in the filesystem.");
 		}
+		throw new IOException("Unable to locate an article with id = " + id + " in the filesystem.");
 	}
 	
 	/**
 	 * Loads the {@link Article Articles} with the given {@code ids} from disk using the information in the SQL database.
 	 * 
 	 * @param ids
-	 *            the IDs of the {@link Article} to load as a {@link Collection}
-	 * @return the {@link Article} if one was found, otherwise null
+	 *            the IDs of the {@link Article} to load as a {@link Collection}. If this is empty, every {@link Article} in
+	 *            the database is loaded
+	 * @return the {@link Article Articles} that were found
 	 * @throws SQLException
+	 *             if an SQL error occurs
+	 * @see #loadArticles(Collection, Consumer)
 	 */
 	public List<Article> loadArticles(Collection<Integer> ids) throws SQLException {
-		synchronized (fsLock.readLock()) {
-			List<Article> articles = new ArrayList<>();
-			List<Future<Article>> futures = new ArrayList<>();
-			try (ResultSet rs = connection.prepareStatement("select * from articles").executeQuery()) {
-				logger.info("Starting to deserialize articles");
-				if (ids.size() > 0) {
-					int id = 0;
-					while (ids.size() > 0 && rs.next()) {
-						id = rs.getInt("id");
-						if (ids.contains(id)) {
-							futures.add(pool.submit(loadArticle(rs.getString("title"), rs.getString("filename"))));
-							ids.remove(id);
+		List<Article> articles = new ArrayList<>();
+		loadArticles(ids, articles::add);
+		return articles;
+	}
+	
+	/**
+	 * Loads the {@link Article Articles} with the given {@code ids} from disk using the information in the SQL database and
+	 * passes each one to {@code sink} as soon as it has been deserialized. At most {@link #DEFAULT_MAX_IN_FLIGHT}
+	 * {@link Article Articles} are deserialized at once.
+	 * 
+	 * @param ids
+	 *            the IDs of the {@link Article} to load as a {@link Collection}. If this is empty, every {@link Article} in
+	 *            the database is loaded
+	 * @param sink
+	 *            the {@link Consumer} that receives the loaded {@link Article Articles}. It is only called from the thread
+	 *            that called this method
+	 * @throws SQLException
+	 *             if an SQL error occurs
+	 * @see #loadArticles(Collection, Consumer, int)
+	 */
+	public void loadArticles(Collection<Integer> ids, Consumer<Article> sink) throws SQLException {
+		loadArticles(ids, sink, DEFAULT_MAX_IN_FLIGHT);
+	}
+	
+	/**
+	 * Loads the {@link Article Articles} with the given {@code ids} from disk using the information in the SQL database and
+	 * passes each one to {@code sink} as soon as it has been deserialized.<br>
+	 * The IDs are filtered on the database side in chunks of {@link #ID_CHUNK_SIZE}. Only the untagged text is decoded
+	 * immediately; the {@link Article Articles'} {@link ArticlePart parts} are decoded the first time that they are used.
+	 * 
+	 * @param ids
+	 *            the IDs of the {@link Article} to load as a {@link Collection}. If this is empty, every {@link Article} in
+	 *            the database is loaded
+	 * @param sink
+	 *            the {@link Consumer} that receives the loaded {@link Article Articles}. It is only called from the thread
+	 *            that called this method
+	 * @param maxInFlight
+	 *            the maximum number of {@link Article Articles} that can be waiting for deserialization or delivery at once
+	 * @throws SQLException
+	 *             if an SQL error occurs
+	 */
+	public void loadArticles(Collection<Integer> ids, Consumer<Article> sink, int maxInFlight) throws SQLException {
+		loadArticles(ids, sink, maxInFlight, EnumSet.noneOf(ArticlePart.class));
+	}
+	
+	/**
+	 * Loads the {@link Article Articles} with the given {@code ids} from disk using the information in the SQL database and
+	 * passes each one to {@code sink} as soon as the given {@link ArticlePart parts} have been decoded.<br>
+	 * The IDs are filtered on the database side in chunks of {@link #ID_CHUNK_SIZE}.
+	 * 
+	 * @param ids
+	 *            the IDs of the {@link Article} to load as a {@link Collection}. If this is empty, every {@link Article} in
+	 *            the database is loaded
+	 * @param sink
+	 *            the {@link Consumer} that receives the loaded {@link Article Articles}. It is only called from the thread
+	 *            that called this method
+	 * @param maxInFlight
+	 *            the maximum number of {@link Article Articles} that can be waiting for deserialization or delivery at once
+	 * @param parts
+	 *            the {@link ArticlePart parts} of the {@link Article Articles} to decode before they are passed to
+	 *            {@code sink}
+	 * @throws SQLException
+	 *             if an SQL error occurs
+	 */
+	public void loadArticles(Collection<Integer> ids, Consumer<Article> sink, int maxInFlight, Set<ArticlePart> parts) throws SQLException {
+		logger.info("Starting to deserialize articles");
+		Set<Integer> missing = new LinkedHashSet<>(ids);
+		CompletionService<Article> completion = new ExecutorCompletionService<>(pool);
+		int inFlight = 0;
+		try {
+			List<List<Integer>> chunks = new ArrayList<>();
+			if (ids.size() == 0)
+				chunks.add(null);
+			else {
+				List<Integer> all = new ArrayList<>(missing);
+				for (int i = 0; i < all.size(); i += ID_CHUNK_SIZE)
+					chunks.add(all.subList(i, Math.min(all.size(), i + ID_CHUNK_SIZE)));
+			}
+			for (List<Integer> chunk : chunks) {
+				String statement = "select id, title, filename from " + table + (chunk == null ? "" : " where id = any(?)");
+				try (PreparedStatement stmt = connection.prepareStatement(statement)) {
+					if (chunk != null)
+						stmt.setArray(1, connection.createArrayOf("integer", chunk.toArray()));
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							if (inFlight >= maxInFlight) {
+								deliver(completion.take(), sink);
+								inFlight--;
+							}
+							int id = rs.getInt("id");
+							missing.remove(id);
+							Article cached = cache.get(id);
+							if (cached != null && parts.isEmpty()) {
+								sink.accept(cached);
+								continue;
+							}
+							if (cached != null)
+								completion.submit(() -> ArticleCodec.decodeParts(cached, parts));
+							else
+								completion.submit(loadArticle(id, rs.getString("title"), rs.getString("filename"), parts));
+							inFlight++;
 						}
 					}
 				}
-				else {
-					while (rs.next())
-						futures.add(pool.submit(loadArticle(rs.getString("title"), rs.getString("filename"))));
-				}
-			}
-			Article article = null;
-			for (Future<Article> future : futures) {
-				try {
-					article = future.get();
-					if (article != null)
-						articles.add(article);
-				}
-				catch (InterruptedException e) {
-					logger.warn("A concurrency error occurred while deserializing articles", e);
-				}
-				catch (ExecutionException e) {
-					logger.warn("An error occurred while deserializing articles", e.getCause());
-				}
 			}
-			logger.info("Done deserializing articles");
-			if (ids.size() > 0)
-				logger.warn("Did not find articles with ids matching " + ids.stream().reduce("", (a, b) -> a + ", " + b.toString(), (a, b) -> a + b).substring(2));
-			return articles;
+			for (; inFlight > 0; inFlight--)
+				deliver(completion.take(), sink);
 		}
+		catch (InterruptedException e) {
+			logger.warn("A concurrency error occurred while deserializing articles", e);
+			Thread.currentThread().interrupt();
+		}
+		logger.info("Done deserializing articles (" + cache + ")");
+		if (missing.size() > 0)
+			logger.warn("Did not find articles with ids matching " + missing.stream().reduce("", (a, b) -> a + ", " + b.toString(), (a, b) -> a + b).substring(2));
 	}
 	
-	private Callable<Article> loadArticle(String title, String filename) {
+	private static void deliver(Future<Article> future, Consumer<Article> sink) throws InterruptedException {
+		try {
+			Article article = future.get();
+			if (article != null)
+				sink.accept(article);
+		}
+		catch (ExecutionException e) {
+			logger.warn("An error occurred while deserializing articles", e.getCause());
+		}
+	}
+	
+	private Callable<Article> loadArticle(int id, String title, String filename, Set<ArticlePart> parts) {
 		return () -> {
 			Article article = null;
-			for (Path store : storage) {
-				if (!Files.exists(store))
-					continue;
-				Path serialized = ArticleManager.toSerializedPath(store.resolve(filename));
-				if (!Files.exists(serialized))
-					continue;
-				try (ObjectInputStream serialIn = new ObjectInputStream(new FileInputStream(serialized.toFile()))) {
-					article = (Article) serialIn.readObject();
-				}
-				catch (ClassNotFoundException | IOException e) {
-					logger.debug("Error while deserializing data for " + title, e);
-					article = null;
-				}
+			try {
+				if ((article = readFromDisk(id, filename)) != null)
+					cache.put(ArticleCodec.decodeParts(article, parts));
+			}
+			catch (ClassNotFoundException | IOException e) {
+				logger.debug("Error while deserializing data for " + title, e);
 			}
 			if (article == null)
 				logger.warn("Unable to find the serialized data for " + title + ".  Skipping.");
@@ -368,6 +970,108 @@ public class ArticleManager implements Closeable {
 		};
 	}
 	
+	/**
+	 * Retrieves the {@link Article} with the given ID from the shared {@link ArticleCache} or, if it is not cached, reads it
+	 * from disk and adds it to the cache.
+	 * 
+	 * @param id
+	 *            the ID of the {@link Article}
+	 * @param filename
+	 *            the name of the {@link Article Article's} tagged text file
+	 * @return the {@link Article} or {@code null} if it could not be found
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws ClassNotFoundException
+	 *             if a legacy data file refers to a class that cannot be found
+	 */
+	private Article readStored(int id, String filename) throws IOException, ClassNotFoundException {
+		Article article = cache.get(id);
+		if (article == null && (article = readFromDisk(id, filename)) != null)
+			cache.put(article);
+		return article;
+	}
+	
+	/**
+	 * Reads the {@link Article} with the given ID from the first storage {@link Path} that holds it. The segment stores are
+	 * checked first, followed by the per-article serialized data files written by earlier versions. {@link Article Articles}
+	 * read from the segment stores are decoded lazily.
+	 * 
+	 * @param id
+	 *            the ID of the {@link Article}
+	 * @param filename
+	 *            the name of the {@link Article Article's} tagged text file
+	 * @return the {@link Article} or {@code null} if it could not be found
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws ClassNotFoundException
+	 *             if a legacy data file refers to a class that cannot be found
+	 */
+	private Article readFromDisk(int id, String filename) throws IOException, ClassNotFoundException {
+		for (Path store : storage) {
+			SegmentStore segments = getSegmentStore(store, false);
+			ByteBuffer record = segments == null ? null : segments.read(id);
+			if (record != null)
+				return ArticleCodec.decode(record, EnumSet.noneOf(ArticlePart.class));
+		}
+		for (Path store : storage) {
+			Path serialized = toSerializedPath(store.resolve(filename));
+			if (Files.exists(serialized))
+				return readSerialized(serialized);
+		}
+		return null;
+	}
+	
+	/**
+	 * Gets the {@link SegmentStore} for the given storage {@link Path}, opening it if necessary.
+	 * 
+	 * @param store
+	 *            the storage {@link Path}
+	 * @param create
+	 *            whether the segment directory should be created if it does not already exist
+	 * @return the {@link SegmentStore} or {@code null} if {@code create} is {@code false} and the segment directory does
+	 *         not exist
+	 * @throws IOException
+	 *             if the {@link SegmentStore} cannot be opened
+	 */
+	private SegmentStore getSegmentStore(Path store, boolean create) throws IOException {
+		synchronized (segmentStores) {
+			SegmentStore segments = segmentStores.get(store);
+			if (segments == null) {
+				Path directory = store.resolve("segments");
+				if (!create && !Files.isDirectory(directory))
+					return null;
+				segmentStores.put(store, segments = new SegmentStore(directory, segmentSize));
+			}
+			return segments;
+		}
+	}
+	
+	/**
+	 * Reads the {@link Article} stored in the serialized data file at the given {@link Path}. Files written by
+	 * {@link ArticleCodec} are decoded directly; files written by versions that used Java serialization are still readable.
+	 * 
+	 * @param serialized
+	 *            the {@link Path} to the serialized data file
+	 * @return the {@link Article} stored in the file
+	 * @throws IOException
+	 *             if an I/O error occurs or the file does not contain a valid {@link Article}
+	 * @throws ClassNotFoundException
+	 *             if the file uses Java serialization and refers to a class that cannot be found
+	 */
+	static Article readSerialized(Path serialized) throws IOException, ClassNotFoundException {
+		ByteBuffer data;
+		try (FileChannel channel = FileChannel.open(serialized, StandardOpenOption.READ)) {
+			data = ByteBuffer.allocate((int) channel.size());
+			while (data.hasRemaining() && channel.read(data) >= 0);
+			data.flip();
+		}
+		if (ArticleCodec.isEncoded(data))
+			return ArticleCodec.decode(data);
+		try (ObjectInputStream serialIn = new ObjectInputStream(new ByteArrayInputStream(data.array(), 0, data.limit()))) { //Legacy format
+			return (Article) serialIn.readObject();
+		}
+	}
+	
 	/**
 	 * Constructs the file name for an {@link Article}.
 	 * 
@@ -441,11 +1145,19 @@ public class ArticleManager implements Closeable {
 		if (closed)
 			return;
 		closed = true;
+		awaitBackgroundTasks();
 		try {
 			connection.close();
 		}
 		catch (SQLException e) {
 			logger.error("An SQL error occured while closing an ArticleManager's Connection.", e);
 		}
+		finally {
+			synchronized (segmentStores) {
+				for (SegmentStore segments : segmentStores.values())
+					segments.close(); //Seals the segments that this ArticleManager was writing
+				segmentStores.clear();
+			}
+		}
 	}
 }
@@ -0,0 +1,24 @@
+package eventdetection.common;
+
+import edu.stanford.nlp.pipeline.Annotation;
+
+/**
+ * The parts of a stored {@link Article} that can be decoded when it is loaded. The untagged title and text, URL, and
+ * {@link Source} are always decoded. Parts that are not requested are decoded the first time that they are used.
+ * 
+ * @author Joshua Lipstone
+ */
+public enum ArticlePart {
+	/**
+	 * The {@link Annotation} of the {@link Article Article's} title
+	 */
+	TITLE,
+	/**
+	 * The sentences and tokens of the {@link Article Article's} text without their dependency graphs
+	 */
+	TOKENS,
+	/**
+	 * The {@link Annotation Annotations} of the {@link Article Article's} title and text including their dependency graphs
+	 */
+	DEPENDENCIES;
+}
@@ -0,0 +1,136 @@
+package eventdetection.common;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive {@code long} values that uses open addressing with linear probing. Unlike a {@link java.util.HashSet}
+ * of {@link Long Longs}, it does not allocate an object per element, so it can hold millions of keys (e.g. packed pairs of
+ * IDs, see {@link #pack(int, int)}) in a single array. This class is not thread-safe.
+ * 
+ * @author Joshua Lipstone
+ */
+public final class LongHashSet {
+	private static final long FREE = 0L; //0 is tracked separately so that it can be used to mark free slots
+	private static final int MIN_CAPACITY = 16;
+	
+	private long[] table;
+	private int size, mask;
+	private boolean containsFree;
+	
+	/**
+	 * Creates an empty {@link LongHashSet}.
+	 */
+	public LongHashSet() {
+		this(MIN_CAPACITY / 2);
+	}
+	
+	/**
+	 * Creates an empty {@link LongHashSet} that can hold {@code expectedSize} elements without resizing.
+	 * 
+	 * @param expectedSize
+	 *            the number of elements that the {@link LongHashSet} is expected to hold
+	 */
+	public LongHashSet(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2L && capacity < (1 << 30))
+			capacity <<= 1;
+		table = new long[capacity];
+		mask = capacity - 1;
+		size = 0;
+		containsFree = false;
+	}
+	
+	/**
+	 * Packs two {@code int} values into a single {@code long} key.
+	 * 
+	 * @param high
+	 *            the value to store in the high 32 bits
+	 * @param low
+	 *            the value to store in the low 32 bits
+	 * @return the packed key
+	 */
+	public static long pack(int high, int low) {
+		return ((long) high << 32) | (low & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Adds the given value to the {@link LongHashSet}.
+	 * 
+	 * @param value
+	 *            the value to add
+	 * @return {@code true} iff the value was not already in the {@link LongHashSet}
+	 */
+	public boolean add(long value) {
+		if (value == FREE) {
+			if (containsFree)
+				return false;
+			containsFree = true;
+			size++;
+			return true;
+		}
+		int slot = find(table, mask, value);
+		if (table[slot] == value)
+			return false;
+		table[slot] = value;
+		if (++size * 2 > table.length)
+			resize();
+		return true;
+	}
+	
+	/**
+	 * @param value
+	 *            the value to look for
+	 * @return {@code true} iff the value is in the {@link LongHashSet}
+	 */
+	public boolean contains(long value) {
+		return value == FREE ? containsFree : table[find(table, mask, value)] == value;
+	}
+	
+	/**
+	 * @return the number of values in the {@link LongHashSet}
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return {@code true} iff the {@link LongHashSet} is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Removes every value from the {@link LongHashSet} without shrinking it.
+	 */
+	public void clear() {
+		Arrays.fill(table, FREE);
+		size = 0;
+		containsFree = false;
+	}
+	
+	/**
+	 * @return the slot that holds {@code value} or the free slot at which it would be inserted
+	 */
+	private static int find(long[] table, int mask, long value) {
+		int slot = hash(value) & mask;
+		while (table[slot] != FREE && table[slot] != value)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	
+	private void resize() {
+		long[] old = table;
+		table = new long[old.length * 2];
+		mask = table.length - 1;
+		for (long value : old)
+			if (value != FREE)
+				table[find(table, mask, value)] = value;
+	}
+	
+	private static int hash(long value) { //The finalizer from SplitMix64 so that packed keys with similar halves spread out
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return (int) (value ^ (value >>> 31));
+	}
+}
@@ -1,68 +1,179 @@
 package eventdetection.common;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.ArrayCoreMap;
 import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+import eventdetection.common.AnnotatorProfile.ProfileAnnotation;
 
 /**
- * A wrapper for the CoreNLP API.
+ * A wrapper for the CoreNLP API. A separate {@link StanfordCoreNLP pipeline} is kept for each {@link AnnotatorProfile} so
+ * that callers only pay for the annotators that they need.
  * 
  * @author Joshua Lipstone
  */
 public class POSTagger {
 	private static final String delimiter = "_";
-	private static StanfordCoreNLP pipeline = null;
+	private static final Map<AnnotatorProfile, StanfordCoreNLP> pipelines = new EnumMap<>(AnnotatorProfile.class);
+	private static final Map<AnnotatorProfile, Map<AnnotatorProfile, StanfordCoreNLP>> upgrades = new EnumMap<>(AnnotatorProfile.class);
 	private static final Pattern newline = Pattern.compile("\n", Pattern.LITERAL);
+	private static final String PUNCTUATION = "!,.;:'\"?%";
 	private static final Pattern untagger = Pattern.compile("([^_\\s]+)_([^_\\s]+)");
+	private static final Logger logger = LoggerFactory.getLogger("POSTagger");
+	private static ExecutorService executor = null;
+	private static volatile AnnotationCache cache = null;
+	private static int parallelism = Runtime.getRuntime().availableProcessors();
 	
 	/**
-	 * Initializes the pipline if it is {@code null}
+	 * Initializes the pipline for {@link AnnotatorProfile#FULL} if it is {@code null}
 	 * 
 	 * @return the {@link StanfordCoreNLP} pipeline to use
 	 */
-	public static synchronized StanfordCoreNLP getPipeline() {
-		if (pipeline == null) {
-			// creates a StanfordCoreNLP object, with POS tagging, lemmatization,
-			// NER, parsing, and coreference resolution
-			Properties props = new Properties();
-			props.setProperty("annotators", "tokenize, ssplit, pos, lemma, ner, parse, dcoref, depparse");
-			pipeline = new StanfordCoreNLP(props);
-		}
+	public static StanfordCoreNLP getPipeline() {
+		return getPipeline(AnnotatorProfile.FULL);
+	}
+	
+	/**
+	 * Initializes the pipeline for the given {@link AnnotatorProfile} if it has not already been initialized
+	 * 
+	 * @param profile
+	 *            the {@link AnnotatorProfile}
+	 * @return the {@link StanfordCoreNLP} pipeline that runs the annotators in the given {@link AnnotatorProfile}
+	 */
+	public static synchronized StanfordCoreNLP getPipeline(AnnotatorProfile profile) {
+		StanfordCoreNLP pipeline = pipelines.get(profile);
+		if (pipeline == null)
+			pipelines.put(profile, pipeline = new StanfordCoreNLP(properties(profile.getAnnotators())));
+		return pipeline;
+	}
+	
+	private static synchronized StanfordCoreNLP getUpgradePipeline(AnnotatorProfile from, AnnotatorProfile to) {
+		Map<AnnotatorProfile, StanfordCoreNLP> targets = upgrades.get(from);
+		if (targets == null)
+			upgrades.put(from, targets = new EnumMap<>(AnnotatorProfile.class));
+		StanfordCoreNLP pipeline = targets.get(to);
+		if (pipeline == null) //The earlier annotators have already been run, so their requirements cannot be checked by the pipeline
+			targets.put(to, pipeline = new StanfordCoreNLP(properties(to.getAnnotatorsAfter(from)), false));
 		return pipeline;
 	}
 	
+	private static Properties properties(List<String> annotators) {
+		Properties props = new Properties();
+		props.setProperty("annotators", String.join(", ", annotators));
+		props.setProperty("parse.buildgraphs", "false"); //depparse produces the dependency graphs whenever parse is run
+		return props;
+	}
+	
 	/**
-	 * Runs the given {@link Annotation} through the {@link POSTagger POSTagger's} {@link StanfordCoreNLP pipeline}
+	 * Runs the given {@link Annotation} through the {@link POSTagger POSTagger's} {@link StanfordCoreNLP pipeline} for
+	 * {@link AnnotatorProfile#FULL}
 	 * 
 	 * @param document
 	 *            the {@link Annotation} to run through the {@link StanfordCoreNLP pipeline}
 	 */
 	public static void annotate(Annotation document) {
-		getPipeline().annotate(document);
+		annotate(document, AnnotatorProfile.FULL);
+	}
+	
+	/**
+	 * Runs the given {@link Annotation} through the {@link StanfordCoreNLP pipeline} for the given {@link AnnotatorProfile}
+	 * 
+	 * @param document
+	 *            the {@link Annotation} to run through the {@link StanfordCoreNLP pipeline}
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to apply
+	 */
+	public static void annotate(Annotation document, AnnotatorProfile profile) {
+		getPipeline(profile).annotate(document);
+		document.set(ProfileAnnotation.class, profile);
 	}
 	
 	/**
 	 * Generates an {@link Annotation} for the given {@code text}, runs it through the {@link POSTagger POSTagger's}
-	 * {@link StanfordCoreNLP pipeline} and returns it.
+	 * {@link StanfordCoreNLP pipeline} for {@link AnnotatorProfile#FULL} and returns it.
 	 * 
 	 * @param text
 	 *            the text for which to generate the {@link Annotation}
 	 * @return the generated {@link Annotation}
 	 */
 	public static Annotation annotate(String text) {
+		return annotate(text, AnnotatorProfile.FULL);
+	}
+	
+	/**
+	 * Generates an {@link Annotation} for the given {@code text}, runs it through the {@link StanfordCoreNLP pipeline} for
+	 * the given {@link AnnotatorProfile} and returns it.
+	 * 
+	 * @param text
+	 *            the text for which to generate the {@link Annotation}
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to apply
+	 * @return the generated {@link Annotation}
+	 */
+	public static Annotation annotate(String text, AnnotatorProfile profile) {
 		Annotation document = new Annotation(text);
-		annotate(document);
+		annotate(document, profile);
 		return document;
 	}
 	
+	/**
+	 * Generates an {@link Annotation} for the given {@code text} with the given {@link AnnotatorProfile} through the
+	 * {@link AnnotationCache} if one has been {@link #setCache(AnnotationCache) set} and through
+	 * {@link #annotate(String, AnnotatorProfile)} otherwise. The returned {@link Annotation} may be shared, so it must not
+	 * be modified.
+	 * 
+	 * @param text
+	 *            the text for which to generate the {@link Annotation}
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to apply
+	 * @return the generated {@link Annotation}
+	 */
+	public static Annotation annotateDocument(String text, AnnotatorProfile profile) {
+		AnnotationCache cache = POSTagger.cache;
+		return cache == null ? annotate(text, profile) : cache.annotate(text, profile);
+	}
+	
+	/**
+	 * Sets the {@link AnnotationCache} used by {@link #annotateDocument(String, AnnotatorProfile)} and everything that
+	 * annotates documents concurrently.
+	 * 
+	 * @param cache
+	 *            the {@link AnnotationCache} to use or {@code null} to stop caching
+	 */
+	public static void setCache(AnnotationCache cache) {
+		POSTagger.cache = cache;
+	}
+	
+	/**
+	 * @return the {@link AnnotationCache} in use or {@code null} if {@link Annotation Annotations} are not being cached
+	 */
+	public static AnnotationCache getCache() {
+		return cache;
+	}
+	
 	/**
 	 * Generates an {@link Annotation} for each paragraph in the given {@code text}. All of the generated {@link Annotation
 	 * Annotations} a generated through a call to {@link #annotate(String)}.
@@ -73,10 +184,229 @@ public class POSTagger {
 	 * @see #annotate(String)
 	 */
 	public static Annotation[] annotateParagraphs(String text) {
-		String[] paragraphs = newline.split(text);
-		Annotation[] out = new Annotation[paragraphs.length];
-		for (int i = 0; i < paragraphs.length; i++)
-			out[i] = annotate(paragraphs[i]);
+		return annotateParagraphs(text, AnnotatorProfile.FULL);
+	}
+	
+	/**
+	 * Generates an {@link Annotation} for each paragraph in the given {@code text}. All of the generated {@link Annotation
+	 * Annotations} a generated through a call to {@link #annotate(String, AnnotatorProfile)}. The paragraphs are annotated
+	 * concurrently (see {@link #setParallelism(int)}).
+	 * 
+	 * @param text
+	 *            the text for which to generate the {@link Annotation Annotations}
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to apply
+	 * @return the generated {@link Annotation Annotations}
+	 * @see #annotate(String, AnnotatorProfile)
+	 */
+	public static Annotation[] annotateParagraphs(String text, AnnotatorProfile profile) {
+		List<Future<Annotation>> futures = submit(Arrays.asList(splitParagraphs(text)), profile);
+		Annotation[] out = new Annotation[futures.size()];
+		for (int i = 0; i < out.length; i++) {
+			try {
+				out[i] = await(futures.get(i));
+			}
+			catch (ExecutionException e) {
+				futures.forEach(f -> f.cancel(false));
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				if (e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Generates an {@link Annotation} for each of the given {@code documents} without splitting them into paragraphs. The
+	 * documents are annotated concurrently (see {@link #setParallelism(int)}), and a failure to annotate one of them does not
+	 * affect the others.
+	 * 
+	 * @param documents
+	 *            the texts for which to generate the {@link Annotation Annotations}
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to apply
+	 * @return the generated {@link Annotation Annotations} in the same order as {@code documents} with {@code null} in place
+	 *         of each document that could not be annotated
+	 */
+	public static List<Annotation> annotateAll(List<String> documents, AnnotatorProfile profile) {
+		List<Future<Annotation>> futures = submit(documents, profile);
+		List<Annotation> out = new ArrayList<>(futures.size());
+		for (Future<Annotation> future : futures) {
+			try {
+				out.add(await(future));
+			}
+			catch (ExecutionException e) {
+				logger.warn("Unable to annotate a document.", e.getCause());
+				out.add(null);
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Splits the given {@code text} into the paragraphs that {@link #annotateParagraphs(String, AnnotatorProfile)} annotates.
+	 * 
+	 * @param text
+	 *            the text to split
+	 * @return the paragraphs in {@code text}
+	 */
+	public static String[] splitParagraphs(String text) {
+		return newline.split(text);
+	}
+	
+	/**
+	 * Sets the number of threads used to annotate documents concurrently. The default is the number of available
+	 * processors. All of the threads share the {@link StanfordCoreNLP pipelines}, so this does not load any additional
+	 * models.
+	 * 
+	 * @param threads
+	 *            the number of threads to use
+	 * @throws IllegalArgumentException
+	 *             if {@code threads} is less than 1
+	 */
+	public static synchronized void setParallelism(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of annotation threads must be positive.");
+		if (threads == parallelism)
+			return;
+		parallelism = threads;
+		if (executor != null) { //Tasks that have already been submitted finish on the old threads
+			executor.shutdown();
+			executor = null;
+		}
+	}
+	
+	/**
+	 * @return the number of threads used to annotate documents concurrently
+	 */
+	public static synchronized int getParallelism() {
+		return parallelism;
+	}
+	
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			AtomicInteger count = new AtomicInteger(0);
+			executor = Executors.newFixedThreadPool(parallelism, r -> {
+				Thread thread = new Thread(r, "annotator-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+	
+	private static List<Future<Annotation>> submit(List<String> documents, AnnotatorProfile profile) {
+		getPipeline(profile); //Loads the models once rather than in every thread
+		ExecutorService executor = getExecutor();
+		List<Future<Annotation>> futures = new ArrayList<>(documents.size());
+		for (String document : documents)
+			futures.add(executor.submit(() -> annotateDocument(document, profile)));
+		return futures;
+	}
+	
+	private static Annotation await(Future<Annotation> future) throws ExecutionException {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeInterruptedException(e);
+		}
+	}
+	
+	/**
+	 * Determines which {@link AnnotatorProfile} has been applied to the given {@link Annotation}.
+	 * 
+	 * @param document
+	 *            the {@link Annotation}
+	 * @return the {@link AnnotatorProfile} that has been applied to {@code document}, {@link AnnotatorProfile#FULL} if it
+	 *         was annotated without one, or {@code null} if it has not been annotated
+	 */
+	public static AnnotatorProfile getProfile(Annotation document) {
+		AnnotatorProfile profile = document.get(ProfileAnnotation.class);
+		if (profile == null && document.containsKey(SentencesAnnotation.class))
+			return AnnotatorProfile.FULL;
+		return profile;
+	}
+	
+	/**
+	 * Upgrades the given {@link Annotation} to the given {@link AnnotatorProfile} by running only the annotators that have
+	 * not already been applied to it. The given {@link Annotation} is not modified because it may already be in use.
+	 * 
+	 * @param document
+	 *            the {@link Annotation} to upgrade
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to which it should be upgraded
+	 * @return {@code document} if it already includes {@code profile}, otherwise an upgraded copy of it
+	 */
+	public static Annotation upgrade(Annotation document, AnnotatorProfile profile) {
+		AnnotatorProfile current = getProfile(document);
+		if (current == null) {
+			Annotation upgraded = new Annotation(document.get(TextAnnotation.class));
+			annotate(upgraded, profile);
+			return upgraded;
+		}
+		if (current.includes(profile))
+			return document;
+		Annotation upgraded = copy(document);
+		getUpgradePipeline(current, profile).annotate(upgraded);
+		upgraded.set(ProfileAnnotation.class, profile);
+		return upgraded;
+	}
+	
+	/**
+	 * Upgrades each of the given {@link Annotation Annotations} with {@link #upgrade(Annotation, AnnotatorProfile)}.
+	 * 
+	 * @param paragraphs
+	 *            the {@link Annotation Annotations} to upgrade
+	 * @param profile
+	 *            the {@link AnnotatorProfile} to which they should be upgraded
+	 * @return {@code paragraphs} if all of them already include {@code profile}, otherwise a new array of the upgraded
+	 *         {@link Annotation Annotations}
+	 */
+	public static Annotation[] upgradeParagraphs(Annotation[] paragraphs, AnnotatorProfile profile) {
+		Annotation[] out = paragraphs;
+		for (int i = 0; i < paragraphs.length; i++) {
+			Annotation upgraded = upgrade(paragraphs[i], profile);
+			if (upgraded != paragraphs[i]) {
+				if (out == paragraphs)
+					out = paragraphs.clone();
+				out[i] = upgraded;
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Copies the document, sentence, and token maps of the given {@link Annotation} so that annotators can add to the copy
+	 * without modifying the original. Values such as dependency graphs are shared.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Annotation copy(Annotation document) {
+		Annotation out = new Annotation(document);
+		Map<CoreLabel, CoreLabel> tokens = new IdentityHashMap<>();
+		List<CoreLabel> documentTokens = document.get(TokensAnnotation.class);
+		if (documentTokens != null)
+			out.set(TokensAnnotation.class, copyTokens(documentTokens, tokens));
+		List<CoreMap> sentences = new ArrayList<>();
+		for (CoreMap sentence : document.get(SentencesAnnotation.class)) {
+			CoreMap copy = sentence instanceof Annotation ? new Annotation((Annotation) sentence) : new ArrayCoreMap(sentence.size()); //Sentences must stay Annotations for reconstructSentence
+			if (!(sentence instanceof Annotation))
+				for (Class key : sentence.keySet())
+					copy.set(key, sentence.get(key));
+			copy.set(TokensAnnotation.class, copyTokens(sentence.get(TokensAnnotation.class), tokens));
+			sentences.add(copy);
+		}
+		out.set(SentencesAnnotation.class, sentences);
+		return out;
+	}
+	
+	private static List<CoreLabel> copyTokens(List<CoreLabel> tokens, Map<CoreLabel, CoreLabel> copies) {
+		List<CoreLabel> out = new ArrayList<>(tokens.size());
+		for (CoreLabel token : tokens)
+			out.add(copies.computeIfAbsent(token, CoreLabel::new));
 		return out;
 	}
 	
@@ -106,7 +436,7 @@ public class POSTagger {
 	public static String tag(String text) {
 		StringBuilder sb = new StringBuilder((int) (text.length() * 1.5));
 		for (String paragraph : newline.split(text)) { //This allows the annotated text to retain paragraph breaks.
-			Annotation document = annotate(paragraph);
+			Annotation document = annotate(paragraph, AnnotatorProfile.POS);
 			tag(document, sb).append("\n");
 		}
 		return sb.toString().trim();
@@ -218,7 +548,7 @@ public class POSTagger {
 		StringBuilder sb = new StringBuilder();
 		for (CoreMap sentence : paragraph.get(SentencesAnnotation.class))
 			reconstructSentence(sentence, sb).append(" ");
-		return sb.toString().replaceAll("\\s+([!,.;:'\"?%])", "$1").trim(); //Fixes extra spaces around punctuation
+		return closePunctuation(sb, 0, sb.length()); //Fixes extra spaces around punctuation
 	}
 	
 	/**
@@ -229,7 +559,8 @@ public class POSTagger {
 	 * @return the reconstructed sentence
 	 */
 	public static String reconstructSentence(CoreMap sentence) {
-		return reconstructSentence(sentence, new StringBuilder()).toString().replaceAll("\\s+([!,\\.;:'\"?%])", "$1").trim();
+		String text = sentence.toString();
+		return closePunctuation(text, 0, text.length());
 	}
 	
 	/**
@@ -245,4 +576,41 @@ public class POSTagger {
 	public static StringBuilder reconstructSentence(CoreMap sentence, StringBuilder sb) {
 		return sb.append(sentence.toString());
 	}
+	
+	/**
+	 * Removes the whitespace before punctuation marks in the given range of {@code text} and trims the result. This is
+	 * equivalent to {@code text.replaceAll("\\s+([!,.;:'\"?%])", "$1").trim()} without the regular expression.
+	 * 
+	 * @param text
+	 *            the text
+	 * @param begin
+	 *            the index of the first character in the range
+	 * @param end
+	 *            the index after the last character in the range
+	 * @return the text in the range with the whitespace before punctuation marks removed
+	 */
+	static String closePunctuation(CharSequence text, int begin, int end) {
+		StringBuilder sb = new StringBuilder(end - begin);
+		for (int i = begin; i < end;) {
+			if (!isWhitespace(text.charAt(i))) {
+				sb.append(text.charAt(i++));
+				continue;
+			}
+			int run = i;
+			while (i < end && isWhitespace(text.charAt(i)))
+				i++;
+			if (i == end || PUNCTUATION.indexOf(text.charAt(i)) < 0)
+				sb.append(text, run, i);
+		}
+		int first = 0, last = sb.length();
+		while (first < last && sb.charAt(first) <= ' ')
+			first++;
+		while (last > first && sb.charAt(last - 1) <= ' ')
+			last--;
+		return sb.substring(first, last);
+	}
+	
+	private static boolean isWhitespace(char c) { //The characters matched by \s
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
 }
@@ -0,0 +1,403 @@
+package eventdetection.common;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The compression codecs that can be applied to stored {@link Article} payloads.<br>
+ * A compressed payload starts with {@link #MAGIC}, followed by the id of the codec, the id of the {@link Dictionary} that
+ * was used (0 if none was used), the uncompressed length, and the compressed length. Payloads that do not start with
+ * {@link #MAGIC} are uncompressed, so stores that hold a mix of codecs can always be read.
+ * 
+ * @author Joshua Lipstone
+ */
+public enum PayloadCompression {
+	/**
+	 * Stores payloads without compressing them
+	 */
+	NONE((byte) 0) {
+		@Override
+		int compress(byte[] in, int start, int end, byte[] out) {
+			return -1;
+		}
+		
+		@Override
+		void decompress(byte[] in, int offset, int length, byte[] out, int start) throws IOException {
+			if (length != out.length - start)
+				throw new IOException("The uncompressed payload has the wrong length.");
+			System.arraycopy(in, offset, out, start, length);
+		}
+	},
+	/**
+	 * Compresses payloads with {@link Deflater}. This is slower than {@link #LZF} but produces smaller payloads.
+	 */
+	DEFLATE((byte) 1) {
+		@Override
+		int compress(byte[] in, int start, int end, byte[] out) {
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				if (start > 0)
+					deflater.setDictionary(in, 0, start);
+				deflater.setInput(in, start, end - start);
+				deflater.finish();
+				int length = 0;
+				while (!deflater.finished() && length < out.length)
+					length += deflater.deflate(out, length, out.length - length);
+				return deflater.finished() ? length : -1;
+			}
+			finally {
+				deflater.end();
+			}
+		}
+		
+		@Override
+		void decompress(byte[] in, int offset, int length, byte[] out, int start) throws IOException {
+			Inflater inflater = new Inflater(true);
+			try {
+				if (start > 0)
+					inflater.setDictionary(out, 0, start);
+				inflater.setInput(in, offset, length);
+				int position = start;
+				while (!inflater.finished() && position < out.length) {
+					int inflated = inflater.inflate(out, position, out.length - position);
+					if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+						break;
+					position += inflated;
+				}
+				if (position != out.length || inflater.getRemaining() > 0)
+					throw new IOException("The deflated payload has the wrong length.");
+			}
+			catch (DataFormatException e) {
+				throw new IOException("The deflated payload is corrupt.", e);
+			}
+			finally {
+				inflater.end();
+			}
+		}
+	},
+	/**
+	 * Compresses payloads with an LZF-style codec that trades some compression for very fast compression and decompression
+	 */
+	LZF((byte) 2) {
+		@Override
+		int compress(byte[] in, int start, int end, byte[] out) {
+			int[] table = new int[1 << LZF_HASH_BITS]; //Holds positions + 1 so that 0 can mean empty
+			for (int i = Math.max(0, start - LZF_MAX_OFFSET); i + 2 < start; i++)
+				table[lzfHash(in, i)] = i + 1;
+			int ip = start, op = 0, literals = start;
+			while (ip + 2 < end) {
+				int hash = lzfHash(in, ip), ref = table[hash] - 1, offset = ip - ref - 1;
+				table[hash] = ip + 1;
+				if (ref < 0 || offset >= LZF_MAX_OFFSET || in[ref] != in[ip] || in[ref + 1] != in[ip + 1] || in[ref + 2] != in[ip + 2]) {
+					ip++;
+					continue;
+				}
+				int max = Math.min(end - ip, LZF_MAX_MATCH), length = 3;
+				while (length < max && in[ref + length] == in[ip + length])
+					length++;
+				if ((op = lzfLiterals(in, literals, ip, out, op)) < 0 || op + 3 > out.length)
+					return -1;
+				if (length - 2 < 7)
+					out[op++] = (byte) (((length - 2) << 5) | (offset >>> 8));
+				else {
+					out[op++] = (byte) ((7 << 5) | (offset >>> 8));
+					out[op++] = (byte) (length - 2 - 7);
+				}
+				out[op++] = (byte) offset;
+				for (int i = ip + 1, last = Math.min(ip + length, end - 2); i < last; i++)
+					table[lzfHash(in, i)] = i + 1;
+				literals = ip += length;
+			}
+			return lzfLiterals(in, literals, end, out, op);
+		}
+		
+		@Override
+		void decompress(byte[] in, int offset, int length, byte[] out, int start) throws IOException {
+			int ip = offset, end = offset + length, op = start;
+			try {
+				while (ip < end) {
+					int control = in[ip++] & 0xFF;
+					if (control < 32) {
+						int count = control + 1;
+						if (ip + count > end || op + count > out.length)
+							throw new IOException("The LZF payload is corrupt.");
+						System.arraycopy(in, ip, out, op, count);
+						ip += count;
+						op += count;
+						continue;
+					}
+					int count = control >>> 5;
+					if (count == 7)
+						count += in[ip++] & 0xFF;
+					count += 2;
+					int ref = op - ((control & 0x1F) << 8) - (in[ip++] & 0xFF) - 1;
+					if (ref < 0 || op + count > out.length || ip > end)
+						throw new IOException("The LZF payload is corrupt.");
+					for (int last = op + count; op < last;) //Back-references can overlap the bytes being written
+						out[op++] = out[ref++];
+				}
+			}
+			catch (ArrayIndexOutOfBoundsException e) {
+				throw new IOException("The LZF payload is corrupt.", e);
+			}
+			if (op != out.length)
+				throw new IOException("The LZF payload has the wrong length.");
+		}
+	};
+	
+	/**
+	 * The magic number that marks a compressed payload
+	 */
+	public static final int MAGIC = 0x4544435A; //"EDCZ"
+	private static final int HEADER_SIZE = 4 + 1 + 4 + 4 + 4;
+	private static final int LZF_HASH_BITS = 14, LZF_MAX_OFFSET = 1 << 13, LZF_MAX_MATCH = 2 + 7 + 255;
+	private static final Map<Integer, Dictionary> dictionaries = new ConcurrentHashMap<>();
+	
+	private final byte id;
+	
+	PayloadCompression(byte id) {
+		this.id = id;
+	}
+	
+	/**
+	 * @return the id that marks payloads compressed with this codec
+	 */
+	public byte getID() {
+		return id;
+	}
+	
+	/**
+	 * Compresses {@code in[start:end]} into {@code out}. If {@code start} is greater than 0, {@code in[0:start]} is the
+	 * preset {@link Dictionary}.
+	 * 
+	 * @return the compressed length or -1 if the compressed data does not fit in {@code out}
+	 */
+	abstract int compress(byte[] in, int start, int end, byte[] out);
+	
+	/**
+	 * Decompresses {@code in[offset:offset + length]} into {@code out[start:]}. If {@code start} is greater than 0,
+	 * {@code out[0:start]} holds the preset {@link Dictionary}.
+	 * 
+	 * @throws IOException
+	 *             if the compressed data is corrupt or does not fill {@code out}
+	 */
+	abstract void decompress(byte[] in, int offset, int length, byte[] out, int start) throws IOException;
+	
+	/**
+	 * Compresses the given payload. If compressing the payload would not make it smaller, the payload is returned
+	 * unchanged.
+	 * 
+	 * @param payload
+	 *            a {@link ByteBuffer} holding the payload between its position and limit. Its position is not changed
+	 * @param dictionary
+	 *            the preset {@link Dictionary} to use or {@code null} if no {@link Dictionary} should be used
+	 * @return a {@link ByteBuffer} holding the compressed payload, ready to be read
+	 */
+	public ByteBuffer compress(ByteBuffer payload, Dictionary dictionary) {
+		if (this == NONE || payload.remaining() <= HEADER_SIZE + 1)
+			return payload;
+		byte[] prefix = dictionary == null ? new byte[0] : dictionary.getContents(this);
+		byte[] in = new byte[prefix.length + payload.remaining()], out = new byte[payload.remaining() - HEADER_SIZE - 1]; //Anything longer would not be smaller
+		System.arraycopy(prefix, 0, in, 0, prefix.length);
+		payload.duplicate().get(in, prefix.length, payload.remaining());
+		int length = compress(in, prefix.length, in.length, out);
+		if (length < 0)
+			return payload;
+		ByteBuffer compressed = ByteBuffer.allocate(HEADER_SIZE + length);
+		compressed.putInt(MAGIC).put(id).putInt(dictionary == null ? 0 : dictionary.getID()).putInt(payload.remaining()).putInt(length);
+		compressed.put(out, 0, length).flip();
+		return compressed;
+	}
+	
+	/**
+	 * Determines whether the given {@link ByteBuffer} holds a compressed payload without changing its position.
+	 * 
+	 * @param buffer
+	 *            the {@link ByteBuffer} to check
+	 * @return {@code true} iff the {@link ByteBuffer} starts with {@link #MAGIC}
+	 */
+	public static boolean isCompressed(ByteBuffer buffer) {
+		return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == MAGIC;
+	}
+	
+	/**
+	 * Decompresses the payload at the start of the given {@link ByteBuffer} and advances the {@link ByteBuffer
+	 * ByteBuffer's} position to its end. If the payload is not compressed, the {@link ByteBuffer} is returned unchanged.
+	 * 
+	 * @param buffer
+	 *            a {@link ByteBuffer} whose position is at the start of a payload
+	 * @return a {@link ByteBuffer} holding the uncompressed payload
+	 * @throws IOException
+	 *             if the payload is corrupt or uses an unknown codec or {@link Dictionary}
+	 */
+	public static ByteBuffer decompress(ByteBuffer buffer) throws IOException {
+		if (!isCompressed(buffer))
+			return buffer;
+		try {
+			ByteBuffer in = buffer.slice();
+			in.getInt();
+			PayloadCompression codec = forID(in.get());
+			int dictionaryID = in.getInt(), rawLength = in.getInt(), length = in.getInt();
+			if (rawLength < 0 || length < 0 || length > in.remaining())
+				throw new IOException("The compressed payload is truncated or corrupt.");
+			byte[] prefix = new byte[0];
+			if (dictionaryID != 0) {
+				Dictionary dictionary = dictionaries.get(dictionaryID);
+				if (dictionary == null)
+					throw new IOException("The payload was compressed with an unknown dictionary: " + Integer.toHexString(dictionaryID));
+				prefix = dictionary.getContents(codec);
+			}
+			byte[] data, out = new byte[prefix.length + rawLength];
+			int offset;
+			if (in.hasArray()) {
+				data = in.array();
+				offset = in.arrayOffset() + in.position();
+			}
+			else {
+				in.get(data = new byte[length]);
+				offset = 0;
+			}
+			System.arraycopy(prefix, 0, out, 0, prefix.length);
+			codec.decompress(data, offset, length, out, prefix.length);
+			buffer.position(buffer.position() + HEADER_SIZE + length);
+			return ByteBuffer.wrap(out, prefix.length, rawLength).slice();
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("The compressed payload is truncated or corrupt.", e);
+		}
+	}
+	
+	/**
+	 * Gets the {@link PayloadCompression} codec with the given id.
+	 * 
+	 * @param id
+	 *            the id of the codec
+	 * @return the {@link PayloadCompression} codec
+	 * @throws IOException
+	 *             if there is no codec with the given id
+	 */
+	public static PayloadCompression forID(byte id) throws IOException {
+		for (PayloadCompression codec : values())
+			if (codec.id == id)
+				return codec;
+		throw new IOException("Unknown compression codec: " + id);
+	}
+	
+	/**
+	 * Makes the given {@link Dictionary} available for decompressing payloads.
+	 * 
+	 * @param dictionary
+	 *            the {@link Dictionary} to register
+	 * @return {@code dictionary}
+	 */
+	public static Dictionary register(Dictionary dictionary) {
+		dictionaries.putIfAbsent(dictionary.getID(), dictionary);
+		return dictionary;
+	}
+	
+	private static int lzfHash(byte[] in, int i) {
+		return (((in[i] & 0xFF) << 16) | ((in[i + 1] & 0xFF) << 8) | (in[i + 2] & 0xFF)) * 0x9E3779B1 >>> (32 - LZF_HASH_BITS);
+	}
+	
+	private static int lzfLiterals(byte[] in, int from, int to, byte[] out, int op) {
+		if (op < 0)
+			return op;
+		while (from < to) {
+			int count = Math.min(32, to - from);
+			if (op + 1 + count > out.length)
+				return -1;
+			out[op++] = (byte) (count - 1);
+			System.arraycopy(in, from, out, op, count);
+			op += count;
+			from += count;
+		}
+		return op;
+	}
+	
+	/**
+	 * A preset dictionary of byte sequences that are common across payloads. Small payloads compress much better when the
+	 * codec can refer back to a shared dictionary. A {@link Dictionary} is identified by the checksum of its contents, which
+	 * is recorded in every payload that was compressed with it.
+	 * 
+	 * @author Joshua Lipstone
+	 */
+	public static final class Dictionary {
+		/**
+		 * The file extension used for stored {@link Dictionary Dictionaries}
+		 */
+		public static final String EXTENSION = ".dict";
+		
+		private final byte[] contents, lzfContents;
+		private final int id;
+		
+		/**
+		 * Creates a {@link Dictionary} with the given contents. The most useful byte sequences should be at the end.
+		 * 
+		 * @param contents
+		 *            the contents of the {@link Dictionary}
+		 */
+		public Dictionary(byte[] contents) {
+			this.contents = contents.clone();
+			lzfContents = contents.length > LZF_MAX_OFFSET ? Arrays.copyOfRange(contents, contents.length - LZF_MAX_OFFSET, contents.length) : this.contents;
+			CRC32 crc = new CRC32();
+			crc.update(contents);
+			int id = (int) crc.getValue();
+			this.id = id == 0 ? 1 : id; //0 means that no dictionary was used
+		}
+		
+		/**
+		 * Reads a {@link Dictionary} from the given file.
+		 * 
+		 * @param path
+		 *            the {@link Path} to the file
+		 * @return the {@link Dictionary}
+		 * @throws IOException
+		 *             if the file cannot be read
+		 */
+		public static Dictionary read(Path path) throws IOException {
+			return new Dictionary(Files.readAllBytes(path));
+		}
+		
+		/**
+		 * Writes the {@link Dictionary} to a file named after its id in the given directory.
+		 * 
+		 * @param directory
+		 *            the directory in which to write the {@link Dictionary}
+		 * @return the {@link Path} to the written file
+		 * @throws IOException
+		 *             if the file cannot be written
+		 */
+		public Path write(Path directory) throws IOException {
+			Files.createDirectories(directory);
+			return Files.write(directory.resolve(String.format("%08x", id) + EXTENSION), contents);
+		}
+		
+		/**
+		 * @return the id of the {@link Dictionary}
+		 */
+		public int getID() {
+			return id;
+		}
+		
+		/**
+		 * @return the size of the {@link Dictionary} in bytes
+		 */
+		public int size() {
+			return contents.length;
+		}
+		
+		private byte[] getContents(PayloadCompression codec) { //LZF cannot refer back further than LZF_MAX_OFFSET bytes
+			return codec == LZF ? lzfContents : contents;
+		}
+	}
+}
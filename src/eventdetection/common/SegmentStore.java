@@ -0,0 +1,739 @@
+package eventdetection.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only store of serialized {@link Article Articles} that packs many records into each segment file.<br>
+ * Each segment starts with a short header and is followed by records of the form {@code [id][length][checksum][payload]}. When a
+ * segment is sealed, a footer holding an offset index of its records, a checksum of the record data, the time at which it
+ * was sealed, and a checksum of the footer itself is appended to it. Sealed segments are read through
+ * {@link MappedByteBuffer MappedByteBuffers}. Segments that were never sealed (e.g. because the writing process crashed) are
+ * recovered by scanning their records.<br>
+ * Records are never removed individually; whole segments are retired once everything in them is older than the deletion
+ * delay.<br>
+ * Appends are striped by {@link Article} ID across several active segments, each with its own lock, so that
+ * {@link Article Articles} can be stored from several threads at once. A record is only added to the index after it has
+ * been written, so reads never see a partially written record. Only retiring segments and closing the store exclude
+ * appends. Reads that miss the index may refresh it from the directory, but refreshing has its own lock that appends never
+ * hold, so reads never wait for concurrent appends, and misses refresh at most once every {@link #MIN_REFRESH_INTERVAL}.
+ * 
+ * @author Joshua Lipstone
+ */
+public class SegmentStore implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger("SegmentStore");
+	
+	/**
+	 * The default maximum size of a segment in bytes
+	 */
+	public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024L * 1024L;
+	/**
+	 * The largest supported maximum segment size in bytes. Segments are memory-mapped and addressed with {@code int}
+	 * offsets, so a sealed segment, including its footer, must not be larger than {@link Integer#MAX_VALUE} bytes.
+	 */
+	public static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+	/**
+	 * The default number of segments that can be appended to concurrently
+	 */
+	public static final int DEFAULT_STRIPES = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+	
+	private static final int SEGMENT_MAGIC = 0x45445347; //"EDSG"
+	private static final int FOOTER_MAGIC = 0x45444654; //"EDFT"
+	private static final byte VERSION = 2; //Version 2 added a checksum to each record
+	private static final int HEADER_SIZE = 4 + 1, TRAILER_SIZE = 8 + 4 + 4;
+	private static final String SEGMENT_EXTENSION = ".seg";
+	private static final Duration MODIFIED_TIME_GRANULARITY = Duration.ofSeconds(2);
+	/**
+	 * The minimum amount of time between the refreshes triggered by reads that miss the index
+	 */
+	public static final Duration MIN_REFRESH_INTERVAL = Duration.ofMillis(500);
+	
+	private final Path directory;
+	private final long maxSegmentSize;
+	private final Map<Path, Segment> segments;
+	private final Map<Integer, Location> index;
+	private final Stripe[] stripes;
+	private final Set<Path> created; //The segments that this SegmentStore created, which refreshing must never reopen
+	private final ReadWriteLock structure; //Appends share this; retiring and closing hold it exclusively
+	private final Lock refreshing; //Appends never hold this, so reads that refresh the index never wait for them
+	private volatile FileTime directoryModified;
+	private volatile Instant refreshed;
+	private volatile boolean closed;
+	
+	/**
+	 * Opens the {@link SegmentStore} in the given directory with {@link #DEFAULT_STRIPES} stripes, creating the directory if
+	 * it does not exist.
+	 * 
+	 * @param directory
+	 *            the directory that holds the segment files
+	 * @param maxSegmentSize
+	 *            the maximum size in bytes of a sealed segment, including its footer, after which a new one is started. It
+	 *            must be positive and at most {@link #MAX_SEGMENT_SIZE}
+	 * @throws IOException
+	 *             if the directory cannot be created or an existing segment cannot be read
+	 * @throws IllegalArgumentException
+	 *             if {@code maxSegmentSize} is not positive or is larger than {@link #MAX_SEGMENT_SIZE}
+	 */
+	public SegmentStore(Path directory, long maxSegmentSize) throws IOException {
+		this(directory, maxSegmentSize, DEFAULT_STRIPES);
+	}
+	
+	/**
+	 * Opens the {@link SegmentStore} in the given directory, creating the directory if it does not exist.
+	 * 
+	 * @param directory
+	 *            the directory that holds the segment files
+	 * @param maxSegmentSize
+	 *            the maximum size in bytes of a sealed segment, including its footer, after which a new one is started. It
+	 *            must be positive and at most {@link #MAX_SEGMENT_SIZE}
+	 * @param stripes
+	 *            the number of segments that can be appended to concurrently
+	 * @throws IOException
+	 *             if the directory cannot be created or an existing segment cannot be read
+	 * @throws IllegalArgumentException
+	 *             if {@code maxSegmentSize} is not positive or is larger than {@link #MAX_SEGMENT_SIZE}
+	 */
+	public SegmentStore(Path directory, long maxSegmentSize, int stripes) throws IOException {
+		if (maxSegmentSize <= 0 || maxSegmentSize > MAX_SEGMENT_SIZE)
+			throw new IllegalArgumentException("The maximum segment size must be between 1 and " + MAX_SEGMENT_SIZE + " bytes, not " + maxSegmentSize + ".");
+		this.directory = directory;
+		this.maxSegmentSize = maxSegmentSize;
+		segments = new ConcurrentSkipListMap<>(); //Segment names start with their creation time
+		index = new ConcurrentHashMap<>();
+		this.stripes = new Stripe[Math.max(1, stripes)];
+		for (int i = 0; i < this.stripes.length; i++)
+			this.stripes[i] = new Stripe();
+		created = ConcurrentHashMap.newKeySet();
+		structure = new ReentrantReadWriteLock();
+		refreshing = new ReentrantLock();
+		directoryModified = null;
+		refreshed = null;
+		closed = false;
+		if (!Files.exists(directory))
+			Files.createDirectories(directory);
+		refresh();
+	}
+	
+	/**
+	 * Appends a record to the active segment of the stripe that the given ID belongs to, starting a new segment if needed.
+	 * The record becomes visible to {@link #read(int)} once it has been completely written.
+	 * 
+	 * @param id
+	 *            the ID of the {@link Article} that the record holds
+	 * @param payload
+	 *            the serialized {@link Article}. Its position is advanced to its limit.
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws IllegalArgumentException
+	 *             if the record would not fit in a segment of {@link #MAX_SEGMENT_SIZE} bytes on its own
+	 */
+	public void append(int id, ByteBuffer payload) throws IOException {
+		long recordSize = recordHeaderSize(VERSION) + (long) payload.remaining();
+		if (HEADER_SIZE + recordSize + footerSize(VERSION, 1) > MAX_SEGMENT_SIZE)
+			throw new IllegalArgumentException("A record of " + payload.remaining() + " bytes is too large for a segment.");
+		Stripe stripe = stripes[Math.floorMod(id, stripes.length)];
+		structure.readLock().lock();
+		stripe.lock.lock();
+		try {
+			ensureOpen();
+			if (stripe.active != null && stripe.active.ids.size() > 0 && stripe.active.sealedSize(recordSize) > maxSegmentSize)
+				stripe.seal();
+			if (stripe.active == null) {
+				Path path = directory.resolve(String.format("%016x-%08x%s", System.currentTimeMillis(), ThreadLocalRandom.current().nextInt(), SEGMENT_EXTENSION));
+				created.add(path); //This must happen before the file exists so that a concurrent refresh does not open it as a foreign segment
+				stripe.active = Segment.create(path);
+				segments.put(stripe.active.path, stripe.active);
+			}
+			index.put(id, stripe.active.append(id, payload)); //Publishing the Location after the write keeps readers from seeing partial records
+		}
+		finally {
+			stripe.lock.unlock();
+			structure.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Retrieves the record for the {@link Article} with the given ID.
+	 * 
+	 * @param id
+	 *            the ID of the {@link Article}
+	 * @return a read-only {@link ByteBuffer} holding the record's payload or {@code null} if the store does not contain the
+	 *         {@link Article}
+	 * @throws IOException
+	 *             if an I/O error occurs or the record's length or checksum does not match the stored values
+	 */
+	public ByteBuffer read(int id) throws IOException {
+		ensureOpen();
+		Location location = index.get(id);
+		if (location == null && !Instant.now().isBefore(refreshed.plus(MIN_REFRESH_INTERVAL))) { //The Article might have been written by another process or ArticleManager
+			refreshing.lock();
+			try {
+				ensureOpen();
+				if (!Instant.now().isBefore(refreshed.plus(MIN_REFRESH_INTERVAL)) && isStale()) //Another reader might have just refreshed the index
+					refresh();
+			}
+			finally {
+				refreshing.unlock();
+			}
+			location = index.get(id);
+		}
+		ByteBuffer record = null;
+		while (record == null) {
+			if (location == null)
+				return null;
+			try {
+				record = location.segment.read(location.offset, location.length);
+			}
+			catch (ClosedChannelException e) {
+				Location current = index.get(id);
+				if (current == location)
+					throw e;
+				location = current; //The segment was reopened or retired while it was being read
+			}
+		}
+		if (record.remaining() != location.length || !location.matches(record))
+			throw new IOException("The record for " + id + " in segment " + location.segment.path.getFileName() + " is corrupt");
+		return record;
+	}
+	
+	/**
+	 * @return the IDs of the {@link Article Articles} for which the {@link SegmentStore} currently holds records
+	 */
+	public List<Integer> getIDs() {
+		return new ArrayList<>(index.keySet());
+	}
+	
+	/**
+	 * @param id
+	 *            the ID of an {@link Article}
+	 * @return {@code true} iff the {@link SegmentStore} currently holds a record for the {@link Article} with the given ID
+	 */
+	public boolean contains(int id) {
+		return index.containsKey(id);
+	}
+	
+	/**
+	 * Removes the {@link Article} with the given ID from the index. Its record is reclaimed when its segment is retired.
+	 * 
+	 * @param id
+	 *            the ID of the {@link Article} to remove
+	 */
+	public void remove(int id) {
+		index.remove(id);
+	}
+	
+	/**
+	 * Deletes every segment whose last record was written before {@code oldest}.
+	 * 
+	 * @param oldest
+	 *            the oldest time from which segments should be kept
+	 * @return the IDs of the {@link Article Articles} whose records were in the deleted segments
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Collection<Integer> retireBefore(Instant oldest) throws IOException {
+		structure.writeLock().lock();
+		refreshing.lock(); //A concurrent refresh could otherwise reopen a segment while it is being retired
+		try {
+			ensureOpen();
+			refresh();
+			Collection<Integer> retired = new LinkedHashSet<>();
+			for (Iterator<Segment> iter = segments.values().iterator(); iter.hasNext();) {
+				Segment segment = iter.next();
+				if (segment.isActive() || !segment.lastWrite.isBefore(oldest))
+					continue;
+				iter.remove();
+				unpublish(segment); //The records must be unreachable before their segment is closed
+				retired.addAll(segment.ids);
+				segment.close();
+				Files.deleteIfExists(segment.path);
+				created.remove(segment.path);
+				logger.info("Retired segment " + segment.path.getFileName() + " with " + segment.ids.size() + " articles");
+			}
+			return retired;
+		}
+		finally {
+			refreshing.unlock();
+			structure.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Seals the active segments. The next call to {@link #append(int, ByteBuffer)} for each stripe starts a new segment.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void seal() throws IOException {
+		IOException failure = null;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				stripe.seal();
+			}
+			catch (IOException e) {
+				if (failure == null)
+					failure = e;
+				else
+					failure.addSuppressed(e);
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		if (failure != null)
+			throw failure;
+	}
+	
+	/**
+	 * Checks the data checksums of all of the sealed segments in the {@link SegmentStore}.
+	 * 
+	 * @return the {@link Path Paths} of the segments whose checksums do not match their data
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public List<Path> verify() throws IOException {
+		structure.readLock().lock();
+		try {
+			ensureOpen();
+			List<Path> corrupt = new ArrayList<>();
+			for (Segment segment : segments.values())
+				if (segment.sealed && !segment.verify())
+					corrupt.add(segment.path);
+			return corrupt;
+		}
+		finally {
+			structure.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return the directory that holds the segment files
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * Loads segments that were added to the directory since the last refresh and re-reads segments that were still being
+	 * written by another process or {@link SegmentStore}. This must only be called while holding {@link #refreshing} (or
+	 * from the constructor). It can run concurrently with appends because it never touches the segments that this
+	 * {@link SegmentStore} created.
+	 */
+	private void refresh() throws IOException {
+		refreshed = Instant.now();
+		directoryModified = Files.getLastModifiedTime(directory);
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_EXTENSION)) {
+			for (Path path : stream)
+				paths.add(path);
+		}
+		paths.sort(null); //Segment names start with their creation time
+		for (Iterator<Segment> iter = segments.values().iterator(); iter.hasNext();) { //Drop segments that were retired elsewhere
+			Segment segment = iter.next();
+			if (created.contains(segment.path) || paths.contains(segment.path)) //Segments created after the listing are not in paths
+				continue;
+			iter.remove();
+			unpublish(segment);
+			segment.close();
+		}
+		for (Path path : paths) {
+			Segment old = segments.get(path), segment;
+			if (created.contains(path) || old != null && old.sealed)
+				continue;
+			try {
+				segment = Segment.open(path);
+			}
+			catch (IOException e) {
+				logger.warn("Unable to read the segment " + path.getFileName() + ".  Skipping.", e);
+				continue;
+			}
+			segments.put(path, segment);
+			for (int i = 0; i < segment.ids.size(); i++)
+				index.put(segment.ids.get(i), segment.location(i));
+			if (old != null) //The old segment is only closed once none of the index entries point into it
+				old.close();
+		}
+	}
+	
+	/**
+	 * @return {@code true} iff a segment has been added to or removed from the directory or a segment that was being written
+	 *         elsewhere has grown since the last refresh
+	 */
+	private boolean isStale() throws IOException {
+		if (!Files.getLastModifiedTime(directory).equals(directoryModified))
+			return true;
+		//Modification times are coarse, so a segment created shortly after the last refresh might not have changed it
+		if (directoryModified.toInstant().plus(MODIFIED_TIME_GRANULARITY).isAfter(refreshed))
+			return true;
+		try {
+			for (Segment segment : segments.values()) {
+				MappedByteBuffer map = segment.map;
+				if (!segment.sealed && !segment.isActive() && map != null && Files.size(segment.path) != map.limit())
+					return true;
+			}
+		}
+		catch (NoSuchFileException e) { //The segment was retired by another process
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Removes the index entries that point into the given segment.
+	 */
+	private void unpublish(Segment segment) {
+		for (Integer id : segment.ids) {
+			Location location = index.get(id);
+			if (location != null && location.segment == segment)
+				index.remove(id, location);
+		}
+	}
+	
+	private void ensureOpen() throws IOException {
+		if (closed)
+			throw new IOException("The SegmentStore for " + directory + " has been closed.");
+	}
+	
+	/**
+	 * Seals the active segment and releases all of the {@link SegmentStore SegmentStore's} file handles.
+	 */
+	@Override
+	public void close() throws IOException {
+		structure.writeLock().lock();
+		refreshing.lock();
+		try {
+			if (closed)
+				return;
+			closed = true;
+			seal();
+		}
+		finally {
+			for (Segment segment : segments.values())
+				segment.close();
+			segments.clear();
+			index.clear();
+			refreshing.unlock();
+			structure.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * An active segment and the lock that serializes appends to it.
+	 */
+	private static final class Stripe {
+		final Lock lock = new ReentrantLock();
+		Segment active = null;
+		
+		void seal() throws IOException {
+			if (active == null)
+				return;
+			active.seal();
+			active = null;
+		}
+	}
+	
+	private static final class Location {
+		final Segment segment;
+		final long offset;
+		final int length, checksum;
+		
+		Location(Segment segment, long offset, int length, int checksum) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.checksum = checksum;
+		}
+		
+		boolean matches(ByteBuffer record) {
+			if (segment.version < 2) //Version 1 records do not have checksums
+				return true;
+			CRC32 crc = new CRC32();
+			crc.update(record.duplicate());
+			return (int) crc.getValue() == checksum;
+		}
+	}
+	
+	private static int recordHeaderSize(byte version) {
+		return version < 2 ? 4 + 4 : 4 + 4 + 4;
+	}
+	
+	private static int indexEntrySize(byte version) {
+		return version < 2 ? 4 + 8 + 4 : 4 + 8 + 4 + 4;
+	}
+	
+	private static long footerSize(byte version, int records) {
+		return 4 + records * (long) indexEntrySize(version) + 8 + 8 + TRAILER_SIZE;
+	}
+	
+	private static final class Segment {
+		final Path path;
+		final List<Integer> ids;
+		final List<Long> offsets;
+		final List<Integer> lengths, checksums;
+		final CRC32 checksum;
+		byte version;
+		FileChannel channel; //Only open while the segment is being written
+		FileChannel reader; //Used to read the segment while it is being written so that readers cannot close channel
+		volatile MappedByteBuffer map;
+		long size, storedChecksum;
+		volatile boolean sealed;
+		Instant lastWrite;
+		
+		private Segment(Path path) {
+			this.path = path;
+			ids = new ArrayList<>();
+			offsets = new ArrayList<>();
+			lengths = new ArrayList<>();
+			checksums = new ArrayList<>();
+			checksum = new CRC32();
+			version = VERSION;
+			channel = null;
+			reader = null;
+			map = null;
+			size = 0;
+			storedChecksum = 0;
+			sealed = false;
+			lastWrite = Instant.now();
+		}
+		
+		static Segment create(Path path) throws IOException {
+			Segment segment = new Segment(path);
+			segment.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(SEGMENT_MAGIC).put(VERSION);
+			header.flip();
+			segment.write(header);
+			return segment;
+		}
+		
+		static Segment open(Path path) throws IOException {
+			Segment segment = new Segment(path);
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				long size = channel.size();
+				if (size < HEADER_SIZE)
+					throw new IOException("The segment is too short to hold a header.");
+				MappedByteBuffer map = channel.map(MapMode.READ_ONLY, 0, size);
+				if (map.getInt(0) != SEGMENT_MAGIC)
+					throw new IOException("The file is not a segment.");
+				if ((segment.version = map.get(4)) > VERSION)
+					throw new IOException("Unsupported segment version: " + segment.version);
+				segment.map = map;
+				if (!segment.readFooter(map) && !segment.scanRecords(map))
+					logger.warn("The segment " + path.getFileName() + " was not sealed and ends with an incomplete record");
+				if (!segment.sealed)
+					segment.lastWrite = Files.getLastModifiedTime(path).toInstant();
+			}
+			return segment;
+		}
+		
+		/**
+		 * Reads the index from the footer.
+		 * 
+		 * @return {@code true} iff the segment has a valid footer
+		 */
+		private boolean readFooter(MappedByteBuffer map) {
+			int limit = map.limit();
+			if (limit < HEADER_SIZE + TRAILER_SIZE || map.getInt(limit - 4) != FOOTER_MAGIC)
+				return false;
+			int footerLength = map.getInt(limit - 8);
+			long footerChecksum = map.getLong(limit - TRAILER_SIZE);
+			int footerStart = limit - TRAILER_SIZE - footerLength;
+			if (footerLength < 4 + 8 + 8 || footerStart < HEADER_SIZE)
+				return false;
+			ByteBuffer footer = map.duplicate();
+			footer.limit(footerStart + footerLength).position(footerStart);
+			CRC32 crc = new CRC32();
+			crc.update(footer.duplicate());
+			if (crc.getValue() != footerChecksum)
+				return false;
+			int count = footer.getInt();
+			if (count < 0 || footerLength != 4 + count * indexEntrySize(version) + 8 + 8)
+				return false;
+			for (int i = 0; i < count; i++) {
+				ids.add(footer.getInt());
+				offsets.add(footer.getLong());
+				lengths.add(footer.getInt());
+				checksums.add(version < 2 ? 0 : footer.getInt());
+			}
+			storedChecksum = footer.getLong();
+			lastWrite = Instant.ofEpochMilli(footer.getLong());
+			size = footerStart;
+			sealed = true;
+			return true;
+		}
+		
+		/**
+		 * Rebuilds the index of a segment that was never sealed by scanning its records.
+		 * 
+		 * @return {@code true} iff the segment ends on a record boundary
+		 */
+		private boolean scanRecords(MappedByteBuffer map) {
+			long position = HEADER_SIZE, limit = map.limit();
+			int recordHeaderSize = recordHeaderSize(version);
+			while (position + recordHeaderSize <= limit) {
+				int id = map.getInt((int) position), length = map.getInt((int) position + 4);
+				if (length < 0 || position + recordHeaderSize + length > limit)
+					break;
+				ids.add(id);
+				offsets.add(position + recordHeaderSize);
+				lengths.add(length);
+				checksums.add(version < 2 ? 0 : map.getInt((int) position + 8));
+				position += recordHeaderSize + length;
+			}
+			size = position;
+			return position == limit;
+		}
+		
+		/**
+		 * @return {@code true} iff this segment is being written by this {@link SegmentStore}
+		 */
+		boolean isActive() {
+			return !sealed && channel != null;
+		}
+		
+		private void write(ByteBuffer data) throws IOException {
+			ByteBuffer view = data.duplicate();
+			while (data.hasRemaining())
+				size += channel.write(data);
+			checksum.update(view);
+		}
+		
+		Location location(int i) {
+			return new Location(this, offsets.get(i), lengths.get(i), checksums.get(i));
+		}
+		
+		long sealedSize(long recordSize) { //The size of the segment once sealed if a record of recordSize bytes were appended
+			return size + recordSize + footerSize(version, ids.size() + 1);
+		}
+		
+		Location append(int id, ByteBuffer payload) throws IOException {
+			CRC32 crc = new CRC32();
+			crc.update(payload.duplicate());
+			int length = payload.remaining(), recordChecksum = (int) crc.getValue();
+			ByteBuffer header = ByteBuffer.allocate(recordHeaderSize(version)).putInt(id).putInt(length).putInt(recordChecksum);
+			header.flip();
+			long offset = size + header.remaining();
+			write(header);
+			write(payload);
+			ids.add(id);
+			offsets.add(offset);
+			lengths.add(length);
+			checksums.add(recordChecksum);
+			lastWrite = Instant.now();
+			return location(ids.size() - 1);
+		}
+		
+		ByteBuffer read(long offset, int length) throws IOException {
+			MappedByteBuffer map = this.map;
+			if (map == null) { //The segment is still being written, so we cannot map it yet
+				try {
+					ByteBuffer out = ByteBuffer.allocate(length);
+					FileChannel reader = reader();
+					while (out.hasRemaining())
+						if (reader.read(out, offset + out.position()) < 0)
+							throw new IOException("Unexpected end of segment " + path.getFileName());
+					out.flip();
+					return out.asReadOnlyBuffer();
+				}
+				catch (ClosedChannelException e) {
+					if ((map = this.map) == null) //The segment was closed rather than sealed
+						throw e;
+				}
+			}
+			ByteBuffer out = map.duplicate();
+			out.limit((int) (offset + length)).position((int) offset);
+			return out.slice().asReadOnlyBuffer();
+		}
+		
+		private synchronized FileChannel reader() throws IOException {
+			if (sealed || channel == null)
+				throw new ClosedChannelException();
+			if (reader == null || !reader.isOpen()) //Interrupting a reading thread closes the channel
+				reader = FileChannel.open(path, StandardOpenOption.READ);
+			return reader;
+		}
+		
+		private synchronized void closeReader() throws IOException {
+			if (reader != null) {
+				reader.close();
+				reader = null;
+			}
+		}
+		
+		void seal() throws IOException {
+			if (sealed || channel == null)
+				return;
+			ByteBuffer footer = ByteBuffer.allocate(4 + ids.size() * indexEntrySize(version) + 8 + 8);
+			footer.putInt(ids.size());
+			for (int i = 0; i < ids.size(); i++)
+				footer.putInt(ids.get(i)).putLong(offsets.get(i)).putInt(lengths.get(i)).putInt(checksums.get(i));
+			storedChecksum = checksum.getValue();
+			footer.putLong(storedChecksum).putLong(lastWrite.toEpochMilli());
+			footer.flip();
+			CRC32 crc = new CRC32();
+			crc.update(footer.duplicate());
+			ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).putLong(crc.getValue()).putInt(footer.remaining()).putInt(FOOTER_MAGIC);
+			trailer.flip();
+			long dataSize = size;
+			while (footer.hasRemaining())
+				channel.write(footer);
+			while (trailer.hasRemaining())
+				channel.write(trailer);
+			channel.force(true);
+			size = dataSize;
+			map = channel.map(MapMode.READ_ONLY, 0, channel.size()); //Readers switch to the map before the channels are closed
+			sealed = true;
+			closeReader();
+			channel.close();
+			channel = null;
+		}
+		
+		boolean verify() {
+			ByteBuffer data = map.duplicate();
+			data.limit((int) size).position(0);
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			return crc.getValue() == storedChecksum;
+		}
+		
+		void close() throws IOException {
+			closeReader();
+			if (channel != null) {
+				channel.close();
+				channel = null;
+			}
+			map = null;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package eventdetection.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * A compact, immutable representation of PoS tagged text. Words are stored as indices into the {@link TaggedText
+ * TaggedText's} own vocabulary and tags as {@link TokenTable#TAGS} ids in primitive arrays along with the sentence and
+ * paragraph boundaries, and the paragraph texts are shared with the {@link Annotation Annotations} that the
+ * {@link TaggedText} was built from. Keeping the vocabulary per {@link TaggedText} means that it is released along with
+ * the {@link TaggedText}. The "word_TAG" form produced by {@link POSTagger} is only
+ * rendered on request.
+ * 
+ * @author Joshua Lipstone
+ */
+public final class TaggedText {
+	private static final char DELIMITER = '_';
+	
+	private final String[] paragraphs;
+	private final String[] vocabulary; //The distinct words in the order in which they first appear
+	private final int[] words, tags;
+	private final int[] sentenceTokens; //Sentence s covers tokens [sentenceTokens[s], sentenceTokens[s + 1])
+	private final int[] sentenceBegins, sentenceEnds; //Character offsets of each sentence within its paragraph
+	private final int[] paragraphSentences; //Paragraph p covers sentences [paragraphSentences[p], paragraphSentences[p + 1])
+	
+	private TaggedText(String[] paragraphs, String[] vocabulary, int[] words, int[] tags, int[] sentenceTokens, int[] sentenceBegins, int[] sentenceEnds,
+			int[] paragraphSentences) {
+		this.paragraphs = paragraphs;
+		this.vocabulary = vocabulary;
+		this.words = words;
+		this.tags = tags;
+		this.sentenceTokens = sentenceTokens;
+		this.sentenceBegins = sentenceBegins;
+		this.sentenceEnds = sentenceEnds;
+		this.paragraphSentences = paragraphSentences;
+	}
+	
+	/**
+	 * Builds a {@link TaggedText} from the given {@link Annotation Annotations}, one per paragraph. The {@link Annotation
+	 * Annotations} must include at least {@link AnnotatorProfile#POS}.
+	 * 
+	 * @param paragraphs
+	 *            the {@link Annotation Annotations} of the paragraphs
+	 * @return the {@link TaggedText}
+	 */
+	public static TaggedText of(Annotation... paragraphs) {
+		int sentenceCount = 0, tokenCount = 0;
+		for (Annotation paragraph : paragraphs) {
+			List<CoreMap> sentences = paragraph.get(SentencesAnnotation.class);
+			if (sentences == null)
+				continue;
+			sentenceCount += sentences.size();
+			for (CoreMap sentence : sentences)
+				tokenCount += sentence.get(TokensAnnotation.class).size();
+		}
+		String[] texts = new String[paragraphs.length];
+		int[] words = new int[tokenCount], tags = new int[tokenCount];
+		int[] sentenceTokens = new int[sentenceCount + 1], sentenceBegins = new int[sentenceCount], sentenceEnds = new int[sentenceCount];
+		int[] paragraphSentences = new int[paragraphs.length + 1];
+		Map<String, Integer> ids = new HashMap<>();
+		List<String> vocabulary = new ArrayList<>();
+		int s = 0, t = 0;
+		for (int p = 0; p < paragraphs.length; p++) {
+			texts[p] = paragraphs[p].toString();
+			paragraphSentences[p] = s;
+			List<CoreMap> sentences = paragraphs[p].get(SentencesAnnotation.class);
+			if (sentences == null)
+				continue;
+			for (CoreMap sentence : sentences) {
+				sentenceTokens[s] = t;
+				sentenceBegins[s] = sentence.get(CharacterOffsetBeginAnnotation.class);
+				sentenceEnds[s] = sentence.get(CharacterOffsetEndAnnotation.class);
+				for (CoreLabel token : sentence.get(TokensAnnotation.class)) {
+					words[t] = wordID(token.word(), ids, vocabulary);
+					tags[t++] = TokenTable.TAGS.id(token.tag());
+				}
+				s++;
+			}
+		}
+		sentenceTokens[s] = t;
+		paragraphSentences[paragraphs.length] = s;
+		return new TaggedText(texts, vocabulary.toArray(new String[vocabulary.size()]), words, tags, sentenceTokens, sentenceBegins, sentenceEnds,
+				paragraphSentences);
+	}
+	
+	private static int wordID(String word, Map<String, Integer> ids, List<String> vocabulary) {
+		if (word == null)
+			return -1;
+		Integer id = ids.get(word);
+		if (id == null) {
+			ids.put(word, id = vocabulary.size());
+			vocabulary.add(word);
+		}
+		return id;
+	}
+	
+	/**
+	 * @return the number of tokens in the {@link TaggedText}
+	 */
+	public int tokenCount() {
+		return words.length;
+	}
+	
+	/**
+	 * @return the number of sentences in the {@link TaggedText}
+	 */
+	public int sentenceCount() {
+		return sentenceBegins.length;
+	}
+	
+	/**
+	 * @return the number of paragraphs in the {@link TaggedText}
+	 */
+	public int paragraphCount() {
+		return paragraphs.length;
+	}
+	
+	/**
+	 * @param token
+	 *            the index of a token
+	 * @return the id of the token's word, which is only meaningful within this {@link TaggedText}, or -1 if it does not have
+	 *         one
+	 */
+	public int wordID(int token) {
+		return words[token];
+	}
+	
+	/**
+	 * @param token
+	 *            the index of a token
+	 * @return the {@link TokenTable#TAGS} id of the token's PoS tag or -1 if it does not have one
+	 */
+	public int tagID(int token) {
+		return tags[token];
+	}
+	
+	/**
+	 * @param token
+	 *            the index of a token
+	 * @return the token's word
+	 */
+	public String word(int token) {
+		return words[token] == -1 ? null : vocabulary[words[token]];
+	}
+	
+	/**
+	 * @param token
+	 *            the index of a token
+	 * @return the token's PoS tag or {@code null} if it does not have one
+	 */
+	public String tag(int token) {
+		return TokenTable.TAGS.get(tags[token]);
+	}
+	
+	/**
+	 * @param sentence
+	 *            the index of a sentence
+	 * @return the index of the sentence's first token
+	 */
+	public int sentenceStart(int sentence) {
+		return sentenceTokens[sentence];
+	}
+	
+	/**
+	 * @param sentence
+	 *            the index of a sentence
+	 * @return the index after the sentence's last token
+	 */
+	public int sentenceEnd(int sentence) {
+		return sentenceTokens[sentence + 1];
+	}
+	
+	/**
+	 * @param paragraph
+	 *            the index of a paragraph
+	 * @return the index of the paragraph's first sentence
+	 */
+	public int paragraphStart(int paragraph) {
+		return paragraphSentences[paragraph];
+	}
+	
+	/**
+	 * @param paragraph
+	 *            the index of a paragraph
+	 * @return the index after the paragraph's last sentence
+	 */
+	public int paragraphEnd(int paragraph) {
+		return paragraphSentences[paragraph + 1];
+	}
+	
+	/**
+	 * Reconstructs a sentence without PoS tags. This is equivalent to {@link POSTagger#reconstructSentence(CoreMap)} on the
+	 * {@link CoreMap} that the sentence was built from.
+	 * 
+	 * @param sentence
+	 *            the index of the sentence
+	 * @return the text of the sentence
+	 */
+	public String sentence(int sentence) {
+		return POSTagger.closePunctuation(paragraphs[paragraphOf(sentence)], sentenceBegins[sentence], sentenceEnds[sentence]);
+	}
+	
+	private int paragraphOf(int sentence) {
+		int low = 0, high = paragraphs.length - 1;
+		while (low < high) { //Finds the last paragraph that starts at or before the sentence
+			int mid = (low + high + 1) >>> 1;
+			if (paragraphSentences[mid] <= sentence)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+	
+	/**
+	 * Appends the PoS tagged form of the given range of tokens to the given {@link StringBuilder}. Each token is followed by
+	 * a space.
+	 * 
+	 * @param start
+	 *            the index of the first token
+	 * @param end
+	 *            the index after the last token
+	 * @param sb
+	 *            the {@link StringBuilder}
+	 * @return {@code sb} (for chaining purposes)
+	 */
+	public StringBuilder appendTagged(int start, int end, StringBuilder sb) {
+		for (int t = start; t < end; t++)
+			sb.append(word(t)).append(DELIMITER).append(tag(t)).append(' ');
+		return sb;
+	}
+	
+	/**
+	 * Renders the PoS tagged text with newlines ({@code '\n'}) separating the paragraphs. The result is identical to that of
+	 * {@link POSTagger#tagParagraphs(Annotation[])} on the {@link Annotation Annotations} that the {@link TaggedText} was
+	 * built from.
+	 * 
+	 * @return the PoS tagged text
+	 */
+	public String toTaggedString() {
+		StringBuilder sb = new StringBuilder(words.length * 12);
+		for (int p = 0; p < paragraphs.length; p++) {
+			int first = paragraphSentences[p], last = paragraphSentences[p + 1];
+			if (first < last)
+				appendTagged(sentenceTokens[first], sentenceTokens[last], sb);
+			sb.append('\n');
+		}
+		int begin = 0, end = sb.length();
+		while (begin < end && sb.charAt(begin) <= ' ')
+			begin++;
+		while (end > begin && sb.charAt(end - 1) <= ' ')
+			end--;
+		return sb.substring(begin, end);
+	}
+	
+	/**
+	 * @return the text without PoS tags with newlines ({@code '\n'}) separating the paragraphs
+	 */
+	public String toUntaggedString() {
+		return String.join("\n", paragraphs);
+	}
+	
+	@Override
+	public String toString() {
+		return toTaggedString();
+	}
+}
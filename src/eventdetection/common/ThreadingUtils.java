@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -168,12 +169,10 @@ public class ThreadingUtils {
 	 *            {@link Article} in the database is loaded
 	 * @return a {@link Map} that maps the {@link Integer} ID of each loaded {@link Article} to the corresponding
 	 *         {@link Article}
-	 * @throws IOException
-	 *             if an error occurs while interacting with the interprocess lock
 	 * @throws SQLException
 	 *             if an SQL error occurs while reading the {@link Article Article's} metadata from the SQL database
 	 */
-	public static Map<Integer, Article> loadArticles(ArticleManager articleManager, Collection<Integer> articleIDs) throws IOException, SQLException {
+	public static Map<Integer, Article> loadArticles(ArticleManager articleManager, Collection<Integer> articleIDs) throws SQLException {
 		return loadArticles(articleManager, articleIDs, new LinkedHashMap<>());
 	}
 	
@@ -190,19 +189,37 @@ public class ThreadingUtils {
 	 *            the {@link Map} into which the loaded {@link Article Articles} will be placed. Any IDs that exist in
 	 *            {@code articles} will be skipped
 	 * @return the {@code articles} {@link Map}
-	 * @throws IOException
-	 *             if an error occurs while interacting with the interprocess lock
 	 * @throws SQLException
 	 *             if an SQL error occurs while reading the {@link Article Article's} metadata from the SQL database
 	 */
-	public static Map<Integer, Article> loadArticles(ArticleManager articleManager, Collection<Integer> articleIDs, Map<Integer, Article> articles) throws IOException, SQLException {
+	public static Map<Integer, Article> loadArticles(ArticleManager articleManager, Collection<Integer> articleIDs, Map<Integer, Article> articles) throws SQLException {
 		Collection<Integer> aIDs =
 				articleIDs == null ? Collections.emptyList() : (articles.size() == 0 ? articleIDs : articleIDs.stream().filter(id -> !articles.keySet().contains(id)).collect(Collectors.toList()));
-		for (Article a : executeTask(() -> articleManager.loadArticles(aIDs)))
-			articles.put(a.getID(), a);
+		loadArticles(articleManager, aIDs, a -> articles.put(a.getID(), a));
 		return articles;
 	}
 	
+	/**
+	 * A thread-safe method for streaming {@link Article Articles} from disk. Each {@link Article} is passed to {@code sink} as
+	 * soon as it has been deserialized, so processing can begin before the last {@link Article} has been loaded. This does
+	 * not take the interprocess lock because loads never see partially stored {@link Article Articles}.
+	 * 
+	 * @param articleManager
+	 *            the {@link ArticleManager} to use
+	 * @param articleIDs
+	 *            the IDs of the {@link Article Articles} to load. If this is empty or {@code null}, then every
+	 *            {@link Article} in the database is loaded
+	 * @param sink
+	 *            the {@link Consumer} that receives the loaded {@link Article Articles}. It is only called from the thread
+	 *            that called this method
+	 * @throws SQLException
+	 *             if an SQL error occurs while reading the {@link Article Article's} metadata from the SQL database
+	 * @see ArticleManager#loadArticles(Collection, Consumer)
+	 */
+	public static void loadArticles(ArticleManager articleManager, Collection<Integer> articleIDs, Consumer<Article> sink) throws SQLException {
+		articleManager.loadArticles(articleIDs == null ? Collections.emptyList() : articleIDs, sink); //Loads read a snapshot of the store, so they do not need the lock
+	}
+	
 	/**
 	 * A thread-safe method deleting old {@link Article Articles} from disk.<br>
 	 * 
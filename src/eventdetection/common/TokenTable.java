@@ -0,0 +1,88 @@
+package eventdetection.common;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An append-only table that assigns a dense {@code int} id to each distinct {@link String} that it is given. Looking up the
+ * id of a {@link String} that is already in the table and looking up the {@link String} for an id do not lock. Ids are only
+ * meaningful within the table that assigned them and must not be persisted.<br>
+ * Because entries are never removed, a table for an open vocabulary such as words should be scoped to the data that it
+ * describes (e.g. a single document or graph) so that it is garbage collected along with that data. Only closed
+ * vocabularies, such as {@link #TAGS}, are shared by the whole process.
+ * 
+ * @author Joshua Lipstone
+ */
+public final class TokenTable {
+	private static final int DEFAULT_INITIAL_CAPACITY = 256;
+	
+	/**
+	 * The process-wide {@link TokenTable} for PoS tags, which is bounded by the tagger's tag set
+	 */
+	public static final TokenTable TAGS = new TokenTable(64);
+	
+	private final ConcurrentHashMap<String, Integer> ids;
+	private volatile String[] strings;
+	private int size;
+	
+	/**
+	 * Creates an empty {@link TokenTable}.
+	 */
+	public TokenTable() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * Creates an empty {@link TokenTable} that can hold {@code initialCapacity} {@link String Strings} without resizing.
+	 * 
+	 * @param initialCapacity
+	 *            the number of {@link String Strings} that the {@link TokenTable} is expected to hold
+	 */
+	public TokenTable(int initialCapacity) {
+		initialCapacity = Math.max(initialCapacity, 1);
+		ids = new ConcurrentHashMap<>(initialCapacity);
+		strings = new String[initialCapacity];
+		size = 0;
+	}
+	
+	/**
+	 * Retrieves the id of the given {@link String}, adding it to the table if it is not already there.
+	 * 
+	 * @param s
+	 *            the {@link String}
+	 * @return the id of {@code s} or -1 if {@code s} is {@code null}
+	 */
+	public int id(String s) {
+		if (s == null)
+			return -1;
+		Integer id = ids.get(s);
+		if (id != null)
+			return id;
+		synchronized (this) {
+			id = ids.get(s);
+			if (id == null) {
+				if (size == strings.length)
+					strings = Arrays.copyOf(strings, size * 2);
+				strings[size] = s;
+				ids.put(s, id = size++); //The put publishes the new entry in strings to threads that find the id through ids
+			}
+		}
+		return id;
+	}
+	
+	/**
+	 * @param id
+	 *            an id returned by {@link #id(String)}
+	 * @return the {@link String} with the given id or {@code null} if {@code id} is -1
+	 */
+	public String get(int id) {
+		return id == -1 ? null : strings[id];
+	}
+	
+	/**
+	 * @return the number of {@link String Strings} in the table
+	 */
+	public synchronized int size() {
+		return size;
+	}
+}
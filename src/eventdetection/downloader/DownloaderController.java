@@ -5,10 +5,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import toberumono.json.JSONArray;
 import toberumono.json.JSONBoolean;
 import toberumono.json.JSONData;
@@ -19,7 +23,6 @@ import eventdetection.common.Article;
 import eventdetection.common.ArticleManager;
 import eventdetection.common.DBConnection;
 import eventdetection.common.Query;
-import eventdetection.common.ThreadingUtils;
 import eventdetection.pipeline.Pipeline;
 import eventdetection.pipeline.PipelineComponent;
 import eventdetection.validator.ValidationResult;
@@ -30,6 +33,8 @@ import eventdetection.validator.ValidationResult;
  * @author Joshua Lipstone
  */
 public class DownloaderController extends DownloaderCollection implements PipelineComponent {
+	private static final Logger logger = LoggerFactory.getLogger("DownloaderController");
+
 	private final ArticleManager am;
 	private boolean closed;
 
@@ -93,12 +98,26 @@ public class DownloaderController extends DownloaderCollection implements Pipeli
 	@Override
 	public void execute(Map<Integer, Query> queries, Map<Integer, Article> articles, Collection<ValidationResult> results) throws IOException, SQLException {
 		List<Article> downloaded = get();
-		ThreadingUtils.executeTask(() -> { //We need to hold the file system lock before we can store Articles
+		List<Article> stored;
+		try {
+			stored = am.storeAll(downloaded);
+		}
+		catch (IOException | SQLException e) { //The batch was rolled back, so fall back to storing the Articles individually
+			logger.warn("Unable to store the downloaded articles as a batch.  Storing them individually.", e);
+			stored = new ArrayList<>();
 			for (Article article : downloaded) {
-				article = am.store(article);
-				articles.put(article.getID(), article);
+				try {
+					Article s = am.store(article);
+					if (s != null)
+						stored.add(s);
+				}
+				catch (IOException | SQLException ex) {
+					logger.error("Unable to store " + article.getUntaggedTitle(), ex);
+				}
 			}
-		});
+		}
+		for (Article article : stored)
+			articles.put(article.getID(), article);
 	}
 
 	private static void updateJSONConfiguration(JSONObject config) {
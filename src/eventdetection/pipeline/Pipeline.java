@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -41,8 +42,12 @@ import eventdetection.validator.ValidatorController;
 public class Pipeline implements PipelineComponent, Closeable {
 	private static final Logger logger = LoggerFactory.getLogger("Pipeline");
 	
+	private final JSONObject config;
 	private final ArticleManager articleManager;
 	private final List<PipelineComponent> components;
+	private final Collection<Integer> defaultQueryIDs, defaultArticleIDs;
+	private Collection<Integer> queryIDs, articleIDs; //The IDs for the current run.  These are only accessed while holding the ThreadingUtils lock
+	private DownloaderController downloader;
 	private boolean closed;
 	
 	/**
@@ -51,11 +56,11 @@ public class Pipeline implements PipelineComponent, Closeable {
 	 * @param config
 	 *            a {@link JSONObject} holding the configuration data for the {@link Pipeline} and its components
 	 * @param queryIDs
-	 *            the IDs of the {@link Query Queries} to use. This must be empty or {@code null} for the downloader to be
-	 *            run
+	 *            the IDs of the {@link Query Queries} to use by default. This must be empty or {@code null} for the
+	 *            downloader to be run
 	 * @param articleIDs
-	 *            the IDs of the {@link Article Articles} to use. This must be empty or {@code null} for the downloader to be
-	 *            run
+	 *            the IDs of the {@link Article Articles} to use by default. This must be empty or {@code null} for the
+	 *            downloader to be run
 	 * @param addDefaultComponents
 	 *            whether the default pipeline components should be added (Downloader, preprocessors, and Validator)
 	 * @throws IOException
@@ -64,29 +69,33 @@ public class Pipeline implements PipelineComponent, Closeable {
 	 *             if an error occurs while connecting to the database
 	 */
 	public Pipeline(JSONObject config, Collection<Integer> queryIDs, Collection<Integer> articleIDs, boolean addDefaultComponents) throws IOException, SQLException {
-		final Collection<Integer> qIDs = queryIDs == null ? Collections.emptyList() : queryIDs, aIDs = articleIDs == null ? Collections.emptyList() : articleIDs;
+		this.config = config;
+		defaultQueryIDs = queryIDs == null ? Collections.emptyList() : queryIDs;
+		defaultArticleIDs = articleIDs == null ? Collections.emptyList() : articleIDs;
+		this.queryIDs = defaultQueryIDs;
+		this.articleIDs = defaultArticleIDs;
 		articleManager = new ArticleManager(config);
 		
 		components = new ArrayList<>();
 		if (addDefaultComponents) {
-			addComponent((queries, articles, results) -> ThreadingUtils.loadQueries(qIDs, queries));
+			addComponent((queries, articles, results) -> ThreadingUtils.loadQueries(this.queryIDs, queries));
 			addComponent((queries, articles, results) -> ThreadingUtils.cleanUpArticles(articleManager));
-			addComponent((queries, articles, results) -> ThreadingUtils.loadArticles(articleManager, aIDs, articles));
-			if (articleIDs.size() == 0) { //Only run the Downloader if no articles are specified.
-				addComponent(new DownloaderController(config));
-				addComponent((queries, articles, results) -> {
-					try {
-						SubprocessHelpers.executePythonProcess(Paths.get("./Daemons/ArticleProcessorDaemon.py"), "--no-lock").waitFor();
-					}
-					catch (InterruptedException e) {}
-				});
-				addComponent((queries, articles, results) -> {
-					try {
-						SubprocessHelpers.executePythonProcess(Paths.get("./Daemons/QueryProcessorDaemon.py"), "--no-lock").waitFor();
-					}
-					catch (InterruptedException e) {}
-				});
-			}
+			addComponent((queries, articles, results) -> articleManager.scrubInBackground());
+			addComponent((queries, articles, results) -> ThreadingUtils.loadArticles(articleManager, this.articleIDs, articles));
+			if (defaultArticleIDs.size() == 0) //The Downloader is created lazily if no run would use it
+				downloader = new DownloaderController(config);
+			addComponent((queries, articles, results) -> { //Only run the Downloader if no articles are specified.
+				if (this.articleIDs.size() != 0)
+					return;
+				if (downloader == null)
+					downloader = new DownloaderController(config);
+				downloader.execute(queries, articles, results);
+				try {
+					SubprocessHelpers.executePythonProcess(Paths.get("./Daemons/ArticleProcessorDaemon.py"), "--no-lock").waitFor();
+					SubprocessHelpers.executePythonProcess(Paths.get("./Daemons/QueryProcessorDaemon.py"), "--no-lock").waitFor();
+				}
+				catch (InterruptedException e) {}
+			});
 			addComponent(new ValidatorController(config));
 			addComponent(new AggregatorController(config));
 			addComponent(Pipeline::filterUsedArticles);
@@ -96,9 +105,8 @@ public class Pipeline implements PipelineComponent, Closeable {
 	}
 	
 	private static void filterUsedArticles(Map<Integer, Query> queries, Map<Integer, Article> articles, Collection<ValidationResult> results) throws IOException, SQLException {
-		Connection connection = DBConnection.getConnection();
 		ValidationResult res;
-		try (PreparedStatement seek = connection.prepareStatement("select * from query_articles where query = ? and article = ? and notification_sent = ?");
+		try (Connection connection = DBConnection.getConnection(); PreparedStatement seek = connection.prepareStatement("select * from query_articles where query = ? and article = ? and notification_sent = ?");
 				PreparedStatement update = connection.prepareStatement("insert into query_articles (query, article, notification_sent) values (?, ?, ?) " +
 						"on conflict (query, article) do update set (notification_sent) = (EXCLUDED.notification_sent)")) {
 			seek.setBoolean(3, true);
@@ -184,11 +192,53 @@ public class Pipeline implements PipelineComponent, Closeable {
 		return this;
 	}
 	
+	/**
+	 * Runs the {@link Pipeline} with the {@link Query} and {@link Article} IDs that it was created with.
+	 */
 	@Override
 	public void execute(Map<Integer, Query> queries, Map<Integer, Article> articles, Collection<ValidationResult> results) throws IOException, SQLException {
+		execute(defaultQueryIDs, defaultArticleIDs, queries, articles, results);
+	}
+	
+	/**
+	 * Runs the {@link Pipeline} with the given {@link Query} and {@link Article} IDs in place of the ones that it was created
+	 * with. This allows a single {@link Pipeline} to be run repeatedly without reloading its components (see
+	 * {@link PipelineService}).
+	 * 
+	 * @param queryIDs
+	 *            the IDs of the {@link Query Queries} to use. This must be empty or {@code null} for the downloader to be
+	 *            run
+	 * @param articleIDs
+	 *            the IDs of the {@link Article Articles} to use. This must be empty or {@code null} for the downloader to be
+	 *            run
+	 * @return the {@link ValidationResult ValidationResults} produced by the run
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws SQLException
+	 *             if an SQL error occurs
+	 */
+	public Collection<ValidationResult> execute(Collection<Integer> queryIDs, Collection<Integer> articleIDs) throws IOException, SQLException {
+		Collection<ValidationResult> results = new ArrayList<>();
+		execute(queryIDs, articleIDs, new LinkedHashMap<>(), new LinkedHashMap<>(), results);
+		return results;
+	}
+	
+	private void execute(Collection<Integer> queryIDs, Collection<Integer> articleIDs, Map<Integer, Query> queries, Map<Integer, Article> articles,
+			Collection<ValidationResult> results) throws IOException, SQLException {
+		if (closed)
+			throw new IllegalStateException("The Pipeline has been closed.");
 		ThreadingUtils.executeTask(() -> {
-			for (PipelineComponent pc : components)
-				pc.execute(queries, articles, results);
+			Collection<Integer> oldQueryIDs = this.queryIDs, oldArticleIDs = this.articleIDs;
+			this.queryIDs = queryIDs == null ? Collections.emptyList() : queryIDs;
+			this.articleIDs = articleIDs == null ? Collections.emptyList() : articleIDs;
+			try {
+				for (PipelineComponent pc : components)
+					pc.execute(queries, articles, results);
+			}
+			finally {
+				this.queryIDs = oldQueryIDs;
+				this.articleIDs = oldArticleIDs;
+			}
 		});
 	}
 	
@@ -199,6 +249,14 @@ public class Pipeline implements PipelineComponent, Closeable {
 		closed = true;
 		articleManager.close();
 		IOException except = null;
+		if (downloader != null) {
+			try {
+				downloader.close();
+			}
+			catch (IOException e) {
+				except = e;
+			}
+		}
 		for (PipelineComponent comp : components) {
 			try {
 				if (comp instanceof Closeable)
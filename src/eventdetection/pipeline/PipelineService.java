@@ -0,0 +1,378 @@
+package eventdetection.pipeline;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import toberumono.json.JSONBoolean;
+import toberumono.json.JSONNumber;
+import toberumono.json.JSONObject;
+import toberumono.json.JSONSystem;
+
+import eventdetection.common.ArticleCache;
+import eventdetection.common.ArticleCodec;
+import eventdetection.common.DBConnection;
+import eventdetection.common.POSTagger;
+import eventdetection.validator.ValidationResult;
+
+/**
+ * Runs a single {@link Pipeline} for the lifetime of the process so that the NLP models, validators, and caches that it
+ * loads are reused between runs. The {@link Pipeline} is run on a fixed schedule and whenever a run is requested through
+ * a local socket. Runs never overlap.<br>
+ * The socket accepts one command per line and writes one line in response:
+ * <ul>
+ * <li>{@code run [-a article IDs...] [-q query IDs...]} runs the {@link Pipeline} and responds once the run is complete</li>
+ * <li>{@code status} describes the last run, the next scheduled run, and the caches</li>
+ * <li>{@code shutdown} stops the service</li>
+ * </ul>
+ * The service is configured by the optional "pipeline-service" section of the configuration file, which can hold
+ * "interval" (the number of minutes between scheduled runs, 60 by default, or 0 to disable the schedule), "host"
+ * ({@code 127.0.0.1} by default), "port" (6544 by default), and "run-on-start" ({@code true} by default).<br>
+ * Usage: {@code java eventdetection.pipeline.PipelineService [configuration file]}
+ * 
+ * @author Joshua Lipstone
+ */
+public class PipelineService implements Closeable {
+	/**
+	 * The default port on which the service listens
+	 */
+	public static final int DEFAULT_PORT = 6544;
+	/**
+	 * The default number of minutes between scheduled runs
+	 */
+	public static final long DEFAULT_INTERVAL = 60;
+	
+	private static final Logger logger = LoggerFactory.getLogger("PipelineService");
+	
+	private final Pipeline pipeline;
+	private final ScheduledExecutorService runner;
+	private final ExecutorService clients;
+	private final ServerSocket server;
+	private final Thread acceptor;
+	private final long interval;
+	private final AtomicInteger runs;
+	private final AtomicLong lastStart, lastEnd, nextRun;
+	private volatile String lastOutcome;
+	private volatile boolean closed;
+	
+	/**
+	 * Creates a new {@link PipelineService}, loads its {@link Pipeline}, and starts listening for requests.
+	 * 
+	 * @param config
+	 *            a {@link JSONObject} holding the configuration data for the {@link PipelineService} and its
+	 *            {@link Pipeline}
+	 * @throws IOException
+	 *             if an error occurs while initializing the {@link Pipeline} or opening the socket
+	 * @throws SQLException
+	 *             if an error occurs while connecting to the database
+	 */
+	public PipelineService(JSONObject config) throws IOException, SQLException {
+		JSONObject service = config.get("pipeline-service") instanceof JSONObject ? (JSONObject) config.get("pipeline-service") : new JSONObject();
+		interval = service.get("interval") instanceof JSONNumber ? ((JSONNumber<?>) service.get("interval")).value().longValue() : DEFAULT_INTERVAL;
+		String host = service.containsKey("host") && service.get("host").value() != null ? service.get("host").value().toString() : "127.0.0.1";
+		int port = service.get("port") instanceof JSONNumber ? ((JSONNumber<?>) service.get("port")).value().intValue() : DEFAULT_PORT;
+		boolean runOnStart = !(service.get("run-on-start") instanceof JSONBoolean) || ((JSONBoolean) service.get("run-on-start")).value();
+		
+		runs = new AtomicInteger(0);
+		lastStart = new AtomicLong(0);
+		lastEnd = new AtomicLong(0);
+		nextRun = new AtomicLong(0);
+		lastOutcome = "none";
+		pipeline = new Pipeline(config, null, null, true);
+		runner = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "pipeline-runner")); //A single thread keeps the runs from overlapping
+		clients = Executors.newCachedThreadPool(r -> daemon(r, "pipeline-client"));
+		try {
+			server = new ServerSocket(port, 50, InetAddress.getByName(host));
+		}
+		catch (IOException e) {
+			pipeline.close();
+			runner.shutdownNow();
+			clients.shutdownNow();
+			throw e;
+		}
+		runner.execute(this::warmUp);
+		if (interval > 0) {
+			nextRun.set(System.currentTimeMillis() + (runOnStart ? 0 : TimeUnit.MINUTES.toMillis(interval)));
+			runner.scheduleAtFixedRate(this::scheduledRun, runOnStart ? 0 : interval, interval, TimeUnit.MINUTES);
+		}
+		else if (runOnStart)
+			runner.execute(this::scheduledRun);
+		acceptor = daemon(this::accept, "pipeline-acceptor");
+		acceptor.start();
+		logger.info("Listening on " + server.getLocalSocketAddress() + (interval > 0 ? " and running every " + interval + " minutes." : "."));
+	}
+	
+	private static Thread daemon(Runnable r, String name) {
+		Thread t = new Thread(r, name);
+		t.setDaemon(true);
+		return t;
+	}
+	
+	/**
+	 * Loads the models that every run needs before the first run so that it is not delayed by them.
+	 */
+	private void warmUp() {
+		try {
+			POSTagger.getPipeline(ArticleCodec.STORED_PROFILE);
+		}
+		catch (RuntimeException e) {
+			logger.warn("Unable to preload the CoreNLP models.", e);
+		}
+	}
+	
+	private void scheduledRun() {
+		if (interval > 0)
+			nextRun.set(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(interval));
+		try {
+			run(null, null);
+		}
+		catch (IOException | SQLException | RuntimeException e) { //Letting this escape would cancel the schedule
+			logger.error("The scheduled run failed.", e);
+		}
+	}
+	
+	private Collection<ValidationResult> run(Collection<Integer> queryIDs, Collection<Integer> articleIDs) throws IOException, SQLException {
+		int run = runs.incrementAndGet();
+		lastStart.set(System.currentTimeMillis());
+		try {
+			Collection<ValidationResult> results = pipeline.execute(queryIDs, articleIDs);
+			lastOutcome = "run " + run + " produced " + results.size() + " results";
+			return results;
+		}
+		catch (IOException | SQLException | RuntimeException e) {
+			lastOutcome = "run " + run + " failed: " + e;
+			throw e;
+		}
+		finally {
+			lastEnd.set(System.currentTimeMillis());
+			logger.info(lastOutcome + " in " + (lastEnd.get() - lastStart.get()) + " ms");
+		}
+	}
+	
+	/**
+	 * Requests a run of the {@link Pipeline} and waits for it to complete. If a run is already in progress, the requested
+	 * run starts once it is complete.
+	 * 
+	 * @param queryIDs
+	 *            the IDs of the {@link eventdetection.common.Query Queries} to use. This must be empty or {@code null} for
+	 *            the downloader to be run
+	 * @param articleIDs
+	 *            the IDs of the {@link eventdetection.common.Article Articles} to use. This must be empty or {@code null} for
+	 *            the downloader to be run
+	 * @return the {@link ValidationResult ValidationResults} produced by the run
+	 * @throws IOException
+	 *             if an I/O error occurs during the run
+	 * @throws SQLException
+	 *             if an SQL error occurs during the run
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the run to complete
+	 */
+	public Collection<ValidationResult> requestRun(Collection<Integer> queryIDs, Collection<Integer> articleIDs) throws IOException, SQLException, InterruptedException {
+		Future<Collection<ValidationResult>> result = runner.submit(() -> run(queryIDs, articleIDs));
+		try {
+			return result.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if (e.getCause() instanceof SQLException)
+				throw (SQLException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+	
+	/**
+	 * @return a one-line description of the state of the {@link PipelineService}
+	 */
+	public String getStatus() {
+		StringBuilder sb = new StringBuilder();
+		long start = lastStart.get(), end = lastEnd.get();
+		sb.append("runs=").append(runs.get());
+		if (start > end)
+			sb.append(", running for ").append(System.currentTimeMillis() - start).append(" ms");
+		sb.append(", last=[").append(lastOutcome);
+		if (end >= start && end > 0)
+			sb.append(" in ").append(end - start).append(" ms");
+		sb.append("]");
+		if (interval > 0)
+			sb.append(", next run in ").append(Math.max(0, nextRun.get() - System.currentTimeMillis()) / 1000).append(" s");
+		sb.append(", ").append(ArticleCache.getShared());
+		if (POSTagger.getCache() != null)
+			sb.append(", ").append(POSTagger.getCache());
+		return sb.toString();
+	}
+	
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket socket = server.accept();
+				clients.execute(() -> serve(socket));
+			}
+			catch (SocketException e) { //The server socket was closed
+				if (!closed)
+					logger.error("The service socket failed.", e);
+				return;
+			}
+			catch (IOException e) {
+				logger.error("Unable to accept a connection.", e);
+			}
+		}
+	}
+	
+	private void serve(Socket socket) {
+		try (Socket s = socket; BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+			for (String line; !closed && (line = in.readLine()) != null;) {
+				String[] command = line.trim().split("\\s+");
+				switch (command[0].toLowerCase()) {
+					case "":
+						break;
+					case "run":
+						Collection<Integer> queryIDs = new LinkedHashSet<>(), articleIDs = new LinkedHashSet<>();
+						String error = parseIDs(command, queryIDs, articleIDs);
+						if (error != null) {
+							out.println("error: " + error);
+							break;
+						}
+						try {
+							long start = System.currentTimeMillis();
+							Collection<ValidationResult> results = requestRun(queryIDs, articleIDs);
+							out.println("ok: " + results.size() + " results in " + (System.currentTimeMillis() - start) + " ms");
+						}
+						catch (IOException | SQLException | RuntimeException e) {
+							out.println("error: " + e);
+						}
+						break;
+					case "status":
+						out.println(getStatus());
+						break;
+					case "shutdown":
+						out.println("ok: shutting down");
+						close();
+						return;
+					default:
+						out.println("error: unknown command " + command[0] + ".  Expected run, status, or shutdown.");
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			logger.warn("Interrupted while waiting for a requested run.");
+		}
+		catch (IOException e) {
+			logger.warn("Lost a connection to the service.", e);
+		}
+	}
+	
+	/**
+	 * Parses the arguments of a run command in the form used by {@link Pipeline#main(String[])}.
+	 * 
+	 * @return {@code null} if the arguments were valid, otherwise a description of the problem
+	 */
+	private static String parseIDs(String[] command, Collection<Integer> queryIDs, Collection<Integer> articleIDs) {
+		Collection<Integer> target = null;
+		for (int i = 1; i < command.length; i++) {
+			if (command[i].equalsIgnoreCase("-a"))
+				target = articleIDs;
+			else if (command[i].equalsIgnoreCase("-q"))
+				target = queryIDs;
+			else if (target == null)
+				return "IDs must follow -a or -q";
+			else {
+				try {
+					target.add(Integer.parseInt(command[i]));
+				}
+				catch (NumberFormatException e) {
+					return command[i] + " is not an integer";
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Blocks until the {@link PipelineService} is closed.
+	 * 
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting
+	 */
+	public void awaitClose() throws InterruptedException {
+		acceptor.join();
+		runner.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Stops accepting requests, waits for the current run to complete, and closes the {@link Pipeline}.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		server.close();
+		runner.shutdown();
+		clients.shutdown();
+		try {
+			runner.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			logger.warn("Interrupted while waiting for the current run to complete.");
+		}
+		pipeline.close();
+		logger.info("Stopped after " + runs.get() + " runs.");
+	}
+	
+	/**
+	 * Main method for the {@link PipelineService} entry point.
+	 * 
+	 * @param args
+	 *            the command-line arguments. The only argument is the path to the configuration file, which defaults to
+	 *            "./configuration.json"
+	 * @throws IOException
+	 *             if an error occurs while initializing the {@link Pipeline} or opening the socket
+	 * @throws SQLException
+	 *             if an error occurs while connecting to the database
+	 * @throws InterruptedException
+	 *             if the main thread is interrupted while the service is running
+	 */
+	public static void main(String[] args) throws IOException, SQLException, InterruptedException {
+		Path configPath = Paths.get(args.length > 0 ? args[0] : "./configuration.json");
+		JSONObject config = (JSONObject) JSONSystem.loadJSON(configPath);
+		DBConnection.configureConnection((JSONObject) config.get("database"));
+		PipelineService service = new PipelineService(config);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				service.close();
+			}
+			catch (IOException e) {
+				logger.error("Unable to close the pipeline service cleanly.", e);
+			}
+		}));
+		service.awaitClose();
+	}
+}
@@ -0,0 +1,88 @@
+package eventdetection.textrank;
+
+/**
+ * Describes a run of the ranking algorithm on a {@link TextRankMatrix}.
+ * 
+ * @author Joshua Lipstone
+ */
+public class ConvergenceStatistics {
+	private final int iterations, nodes, edges;
+	private final double residual;
+	private final boolean converged;
+	private final long time;
+	
+	/**
+	 * Creates a new {@link ConvergenceStatistics}.
+	 * 
+	 * @param iterations
+	 *            the number of iterations that were run
+	 * @param residual
+	 *            the largest change in rank in the last iteration
+	 * @param converged
+	 *            whether the residual fell to or below the convergence threshold
+	 * @param time
+	 *            the time that the ranking algorithm took in nanoseconds
+	 * @param nodes
+	 *            the number of nodes that were ranked
+	 * @param edges
+	 *            the number of edges between the nodes
+	 */
+	public ConvergenceStatistics(int iterations, double residual, boolean converged, long time, int nodes, int edges) {
+		this.iterations = iterations;
+		this.residual = residual;
+		this.converged = converged;
+		this.time = time;
+		this.nodes = nodes;
+		this.edges = edges;
+	}
+	
+	/**
+	 * @return the number of iterations that were run
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+	
+	/**
+	 * @return the largest change in rank in the last iteration or {@link Double#POSITIVE_INFINITY} if no iterations were
+	 *         run
+	 */
+	public double getResidual() {
+		return residual;
+	}
+	
+	/**
+	 * @return {@code true} iff the residual fell to or below the convergence threshold before the iteration limit was
+	 *         reached
+	 */
+	public boolean hasConverged() {
+		return converged;
+	}
+	
+	/**
+	 * @return the time that the ranking algorithm took in nanoseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+	
+	/**
+	 * @return the number of nodes that were ranked
+	 */
+	public int getNodes() {
+		return nodes;
+	}
+	
+	/**
+	 * @return the number of edges between the nodes
+	 */
+	public int getEdges() {
+		return edges;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("ConvergenceStatistics [iterations=%d, residual=%.3g, converged=%b, time=%.3f ms, nodes=%d, edges=%d]", iterations, residual, converged, time / 1e6,
+				nodes, edges);
+	}
+}
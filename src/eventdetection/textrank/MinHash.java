@@ -0,0 +1,97 @@
+package eventdetection.textrank;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds the pairs of word sets that are likely to overlap with MinHash signatures and locality-sensitive hashing (LSH).
+ * Each signature is split into bands of rows, and two sets become a candidate pair if all of the rows in at least one of
+ * their bands are equal. With {@code b} bands of {@code r} rows, a pair of sets with Jaccard similarity {@code s} becomes a
+ * candidate with probability {@code 1 - (1 - s^r)^b}.
+ * 
+ * @author Joshua Lipstone
+ */
+final class MinHash {
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	
+	private MinHash() {/* This is a static class */}
+	
+	/**
+	 * Finds the candidate pairs among the given sets. Empty sets are never part of a candidate pair.
+	 * 
+	 * @param sets
+	 *            the sets as returned by {@link TextRank#getWords(edu.stanford.nlp.util.CoreMap, eventdetection.common.TokenTable)}
+	 * @param bands
+	 *            the number of bands
+	 * @param rows
+	 *            the number of rows in each band
+	 * @param pool
+	 *            the {@link ForkJoinPool} on which to compute the signatures or {@code null} to compute them on the calling
+	 *            thread
+	 * @return an array whose {@code i}th element holds the indices {@code j > i} of the sets that form candidate pairs with
+	 *         set {@code i} in ascending order
+	 */
+	static int[][] candidates(int[][] sets, int bands, int rows, ForkJoinPool pool) {
+		int size = sets.length, hashes = bands * rows;
+		long[][] signatures = new long[size][];
+		TextRank.forEach(pool, size, i -> signatures[i] = signature(sets[i], hashes));
+		int[][] candidates = new int[size][4];
+		int[] counts = new int[size];
+		Integer[] order = new Integer[size];
+		long[] keys = new long[size];
+		for (int band = 0; band < bands; band++) {
+			int members = 0;
+			for (int i = 0; i < size; i++) {
+				if (sets[i].length == 0)
+					continue;
+				long key = band;
+				for (int row = band * rows; row < (band + 1) * rows; row++)
+					key = mix(key * GOLDEN_GAMMA + signatures[i][row]);
+				keys[i] = key;
+				order[members++] = i;
+			}
+			Arrays.sort(order, 0, members, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Integer.compare(a, b));
+			for (int start = 0, end; start < members; start = end) {
+				end = start + 1;
+				while (end < members && keys[order[end]] == keys[order[start]])
+					end++;
+				for (int a = start; a < end; a++) { //Within a bucket, the indices are in ascending order
+					int i = order[a];
+					for (int b = a + 1; b < end; b++) {
+						if (counts[i] == candidates[i].length)
+							candidates[i] = Arrays.copyOf(candidates[i], counts[i] * 2);
+						candidates[i][counts[i]++] = order[b];
+					}
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) { //Pairs that share more than one band are found more than once
+			Arrays.sort(candidates[i], 0, counts[i]);
+			int unique = 0;
+			for (int c = 0; c < counts[i]; c++)
+				if (unique == 0 || candidates[i][unique - 1] != candidates[i][c])
+					candidates[i][unique++] = candidates[i][c];
+			candidates[i] = Arrays.copyOf(candidates[i], unique);
+		}
+		return candidates;
+	}
+	
+	private static long[] signature(int[] set, int hashes) {
+		long[] signature = new long[hashes];
+		Arrays.fill(signature, Long.MAX_VALUE);
+		for (int element : set) {
+			for (int h = 0; h < hashes; h++) {
+				long hash = mix((element + 1L) * GOLDEN_GAMMA + (h + 1L) * 0xBF58476D1CE4E5B9L);
+				if (hash < signature[h])
+					signature[h] = hash;
+			}
+		}
+		return signature;
+	}
+	
+	private static long mix(long z) { //The finalizer from SplitMix64
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,39 @@
+package eventdetection.textrank;
+
+import java.util.ArrayList;
+
+import toberumono.structures.tuples.Pair;
+
+/**
+ * A {@link java.util.List List} of ranked objects and their ranks along with the {@link ConvergenceStatistics} of the
+ * ranking algorithm run that produced them.
+ * 
+ * @author Joshua Lipstone
+ * @param <T>
+ *            the type being ranked
+ */
+public class Ranking<T> extends ArrayList<Pair<T, Double>> {
+	private static final long serialVersionUID = 1L;
+	
+	private final ConvergenceStatistics statistics;
+	
+	/**
+	 * Creates a new, empty {@link Ranking}.
+	 * 
+	 * @param initialCapacity
+	 *            the number of ranked objects that the {@link Ranking} will hold
+	 * @param statistics
+	 *            the {@link ConvergenceStatistics} of the ranking algorithm run
+	 */
+	public Ranking(int initialCapacity, ConvergenceStatistics statistics) {
+		super(initialCapacity);
+		this.statistics = statistics;
+	}
+	
+	/**
+	 * @return the {@link ConvergenceStatistics} of the ranking algorithm run that produced the ranks
+	 */
+	public ConvergenceStatistics getStatistics() {
+		return statistics;
+	}
+}
@@ -5,21 +5,32 @@ import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Scanner;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -37,13 +48,18 @@ import toberumono.json.exceptions.JSONException;
 import toberumono.structures.tuples.Pair;
 
 import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.util.CoreMap;
+import eventdetection.common.AnnotatorProfile;
 import eventdetection.common.Article;
 import eventdetection.common.ArticleManager;
+import eventdetection.common.ArticlePart;
 import eventdetection.common.DBConnection;
 import eventdetection.common.POSTagger;
 import eventdetection.common.Source;
+import eventdetection.common.TokenTable;
 
 /**
  * A static class that implements the TextRank algorithm for sentences
@@ -51,9 +67,12 @@ import eventdetection.common.Source;
  * @author Joshua Lipstone
  */
 public class TextRank {
+	/**
+	 * The number of sentences below which graphs are built on the calling thread even if a {@link ForkJoinPool} is given
+	 */
+	public static final int PARALLEL_THRESHOLD = 128;
+	private static final int SENTENCES_PER_TASK = 8;
 	static final Logger logger = LoggerFactory.getLogger("TextRank");
-	private static final Integer DEFAULT_ITERATIONS = 100;
-	private static final Double DEFAULT_THRESHOLD = 0.0001, DEFAULT_DAMPING_FACTOR = 0.8;
 	
 	/**
 	 * Command line interface for this TextRank algorithm. This is designed to be used as part of a subprocess system. As
@@ -75,7 +94,10 @@ public class TextRank {
 		OutputType outputType = OutputType.JSON;
 		int iterations = 100;
 		double threshold = 0.0001, dampingFactor = 0.8;
-		boolean pos = true, sorting = true;
+		boolean pos = true, sorting = true, parallel = false, gaussSeidel = false, statistics = false, batch = false;
+		double minimumWeight = 0.0;
+		int maxNeighbors = 0, lshBands = 0, lshRows = 0;
+		int threads = Runtime.getRuntime().availableProcessors(), maxInFlight = ArticleManager.DEFAULT_MAX_IN_FLIGHT;
 		for (String arg : args) {
 			switch (arg) {
 				case "-c":
@@ -129,6 +151,53 @@ public class TextRank {
 					setting = 7;
 					switched = true;
 					break;
+				case "--parallel":
+					parallel = true;
+					break;
+				case "--sequential":
+					parallel = false;
+					break;
+				case "--gauss-seidel":
+					gaussSeidel = true;
+					break;
+				case "--jacobi":
+					gaussSeidel = false;
+					break;
+				case "--statistics":
+					statistics = true;
+					break;
+				case "-e":
+				case "--epsilon":
+				case "--minimum-weight":
+					setting = 8;
+					switched = true;
+					break;
+				case "-k":
+				case "--top-k":
+				case "--max-neighbors":
+					setting = 9;
+					switched = true;
+					break;
+				case "--lsh-bands":
+					setting = 10;
+					switched = true;
+					break;
+				case "--lsh-rows":
+					setting = 11;
+					switched = true;
+					break;
+				case "-b":
+				case "--batch":
+					batch = true;
+					break;
+				case "--threads":
+					setting = 12;
+					switched = true;
+					break;
+				case "--max-in-flight":
+					setting = 13;
+					switched = true;
+					break;
 				default:
 					if (setting == 0) {
 						Path temp = Paths.get(arg);
@@ -198,6 +267,54 @@ public class TextRank {
 							logger.warn(arg + " is not a valid boolean value.  Using " + sorting + " instead.");
 						}
 					}
+					else if (setting == 8) {
+						try {
+							minimumWeight = Double.parseDouble(arg);
+						}
+						catch (NumberFormatException e) {
+							logger.warn(arg + " is not a valid decimal number.  Using " + minimumWeight + " instead.");
+						}
+					}
+					else if (setting == 9) {
+						try {
+							maxNeighbors = Integer.parseInt(arg);
+						}
+						catch (NumberFormatException e) {
+							logger.warn(arg + " is not a valid integer.  Using " + maxNeighbors + " instead.");
+						}
+					}
+					else if (setting == 10) {
+						try {
+							lshBands = Integer.parseInt(arg);
+						}
+						catch (NumberFormatException e) {
+							logger.warn(arg + " is not a valid integer.  Using " + lshBands + " instead.");
+						}
+					}
+					else if (setting == 11) {
+						try {
+							lshRows = Integer.parseInt(arg);
+						}
+						catch (NumberFormatException e) {
+							logger.warn(arg + " is not a valid integer.  Using " + lshRows + " instead.");
+						}
+					}
+					else if (setting == 12) {
+						try {
+							threads = Integer.parseInt(arg);
+						}
+						catch (NumberFormatException e) {
+							logger.warn(arg + " is not a valid integer.  Using " + threads + " instead.");
+						}
+					}
+					else if (setting == 13) {
+						try {
+							maxInFlight = Integer.parseInt(arg);
+						}
+						catch (NumberFormatException e) {
+							logger.warn(arg + " is not a valid integer.  Using " + maxInFlight + " instead.");
+						}
+					}
 					if (!switched)
 						setting++;
 			}
@@ -206,73 +323,300 @@ public class TextRank {
 		ArticleManager am = new ArticleManager(DBConnection.getConnection(), ((JSONObject) config.get("tables")).get("articles").value().toString(), (JSONObject) config.get("paths"),
 				(JSONObject) config.get("articles"));
 				
+		if (lshBands > 0 && lshRows < 1)
+			lshRows = 1;
+		TextRankOptions options = new TextRankOptions(iterations, threshold, dampingFactor).setParallel(parallel).setMinimumWeight(minimumWeight).setMaxNeighbors(maxNeighbors)
+				.setLSH(lshBands, lshRows).setGaussSeidel(gaussSeidel);
+		Function<List<CoreMap>, Ranking<CoreMap>> ranker =
+				sorting ? sentences -> TextRank.getSortedRankedSentences(sentences, options) : sentences -> TextRank.getRankedSentences(sentences, options);
+		if (batch) {
+			rankBatch(inputType, am, outputType, ranker, pos, statistics, Math.max(threads, 1), Math.max(maxInFlight, 1));
+			return;
+		}
 		Collection<Article> articles = inputType.getArticles(System.in, am);
 		Map<Article, List<Pair<CoreMap, Double>>> ranked = new LinkedHashMap<>();
-		final int iters = iterations;
-		final double thresh = threshold, damping = dampingFactor;
-		Function<List<CoreMap>, List<Pair<CoreMap, Double>>> ranker =
-				sorting ? sentences -> TextRank.getSortedRankedSentences(sentences, iters, thresh, damping) : sentences -> TextRank.getRankedSentences(sentences, iters, thresh, damping);
 		for (Article article : articles) {
-			List<CoreMap> sentences = new ArrayList<>();
-			for (Annotation paragraph : article.getAnnotatedText())
-				sentences.addAll(paragraph.get(SentencesAnnotation.class));
-			ranked.put(article, ranker.apply(sentences));
+			Ranking<CoreMap> ranking = ranker.apply(getSentences(article));
+			if (statistics)
+				logger.info("Article " + article.getID() + ": " + ranking.getStatistics());
+			ranked.put(article, ranking);
 		}
 		outputType.printOutput(new BufferedWriter(new OutputStreamWriter(System.out)), ranked, pos);
 	}
 	
+	/**
+	 * Ranks the input {@link Article Articles} on {@code threads} threads and writes each {@link Article Article's} output
+	 * as soon as it is ready. At most {@code maxInFlight} {@link Article Articles} are loaded but not yet written at any
+	 * given time, so memory use does not grow with the size of the input. The {@link Article Articles} are written in the
+	 * order in which they finish.
+	 */
+	private static void rankBatch(InputType inputType, ArticleManager am, OutputType outputType, Function<List<CoreMap>, Ranking<CoreMap>> ranker, boolean pos, boolean statistics,
+			int threads, int maxInFlight) throws IOException, SQLException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		boolean[] first = {true};
+		outputType.beginStream(writer);
+		try {
+			inputType.forEachArticle(System.in, am, article -> {
+				inFlight.acquireUninterruptibly(); //Blocks the loader until a slot frees up
+				executor.execute(() -> {
+					try {
+						Ranking<CoreMap> ranking = ranker.apply(getSentences(article));
+						if (statistics)
+							logger.info("Article " + article.getID() + ": " + ranking.getStatistics());
+						String output = outputType.formatArticle(article, ranking, pos);
+						synchronized (writer) {
+							if (!first[0])
+								writer.append(outputType.separator());
+							first[0] = false;
+							writer.append(output);
+							writer.flush();
+						}
+					}
+					catch (IOException | RuntimeException e) {
+						logger.error("Unable to rank article " + article.getID(), e);
+					}
+					finally {
+						inFlight.release();
+					}
+				});
+			}, maxInFlight);
+		}
+		finally {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.warn("Interrupted while waiting for the remaining articles to be ranked.", e);
+			}
+		}
+		synchronized (writer) {
+			outputType.endStream(writer);
+			writer.flush();
+		}
+	}
+	
 	private static TextRankGraph<CoreMap> generateGraph(Annotation... document) {
-		return generateGraph(DEFAULT_ITERATIONS, DEFAULT_THRESHOLD, DEFAULT_DAMPING_FACTOR, document);
+		return generateGraph(new TextRankOptions(), document);
 	}
 	
-	private static TextRankGraph<CoreMap> generateGraph(int iterations, double threshold, double dampingFactor, Annotation... document) {
+	private static TextRankGraph<CoreMap> generateGraph(TextRankOptions options, Annotation... document) {
 		List<CoreMap> sentences = new ArrayList<>();
 		for (Annotation doc : document) {
 			sentences.addAll(doc.get(SentencesAnnotation.class));
 		}
-		return generateGraph(iterations, threshold, dampingFactor, sentences);
+		return generateGraph(options, sentences);
 	}
 	
 	private static TextRankGraph<CoreMap> generateGraph(List<CoreMap> sentences) {
-		return generateGraph(DEFAULT_ITERATIONS, DEFAULT_THRESHOLD, DEFAULT_DAMPING_FACTOR, sentences);
+		return generateGraph(new TextRankOptions(), sentences);
 	}
 	
-	private static TextRankGraph<CoreMap> generateGraph(int iterations, double threshold, double dampingFactor, List<CoreMap> sentences) {
-		TextRankGraph<CoreMap> g = new TextRankGraph<>(sentences.size(), iterations, threshold, dampingFactor);
+	static TextRankGraph<CoreMap> generateGraph(TextRankOptions options, List<CoreMap> sentences) {
+		int size = sentences.size();
+		TextRankGraph<CoreMap> g = new TextRankGraph<>(size, options);
 		for (CoreMap sentence : sentences)
 			g.addNode(new TextRankNode<>(1.0, sentence));
-		String[][] words = new String[sentences.size()][0];
-		double sim = 0;
-		for (int i = 0; i < sentences.size(); i++) {
-			if (words[i].length == 0)
-				words[i] = getWords(sentences.get(i));
-			for (int j = i + 1; j < sentences.size(); j++) {
-				if (words[j].length == 0)
-					words[j] = getWords(sentences.get(j));
-				sim = similarity(words[i], words[j]);
-				g.addEdge(i, sim, j);
-				g.addEdge(j, sim, i);
+		ForkJoinPool pool = size >= PARALLEL_THRESHOLD ? options.getPool() : null;
+		int[][] words = new int[size][];
+		double[] logLengths = new double[size];
+		TokenTable vocabulary = new TokenTable(); //Scoped to the graph so that the words of every document are not retained
+		forEach(pool, size, i -> {
+			words[i] = getWords(sentences.get(i), vocabulary);
+			logLengths[i] = Math.log(words[i].length);
+		});
+		int[][] candidates = options.getLSHBands() > 0 ? MinHash.candidates(words, options.getLSHBands(), options.getLSHRows(), pool) : null;
+		double minimumWeight = options.getMinimumWeight();
+		int[][] neighbors = new int[size][]; //neighbors[i] holds the sentences j > i that share an edge with sentence i in ascending order
+		double[][] similarities = new double[size][];
+		forEach(pool, size, i -> {
+			int count = candidates != null ? candidates[i].length : size - i - 1, kept = 0, j;
+			int[] row = new int[count];
+			double[] sims = new double[count];
+			double sim;
+			for (int c = 0; c < count; c++) {
+				j = candidates != null ? candidates[i][c] : i + c + 1;
+				sim = similarity(words[i], logLengths[i], words[j], logLengths[j]);
+				if (sim > minimumWeight) {
+					row[kept] = j;
+					sims[kept++] = sim;
+				}
+			}
+			neighbors[i] = kept == count ? row : Arrays.copyOf(row, kept);
+			similarities[i] = kept == count ? sims : Arrays.copyOf(sims, kept);
+		});
+		if (options.getMaxNeighbors() > 0)
+			keepHeaviestEdges(neighbors, similarities, options.getMaxNeighbors());
+		int edges = 0;
+		for (int i = 0; i < size; i++)
+			edges += 2 * neighbors[i].length;
+		g.ensureEdgeCapacity(edges);
+		for (int i = 0; i < size; i++) { //This is the order in which the edges were added when every pair had an edge
+			for (int c = 0; c < neighbors[i].length; c++) {
+				g.addEdge(i, similarities[i][c], neighbors[i][c]);
+				g.addEdge(neighbors[i][c], similarities[i][c], i);
 			}
+			neighbors[i] = null;
+			similarities[i] = null;
 		}
 		return g;
 	}
 	
-	private static String[] getWords(CoreMap sentence) {
-		Set<String> out = new LinkedHashSet<>();
-		for (String word : POSTagger.reconstructSentence(sentence).split("([\\Q.,\";:?!\\E]\\s*|\\s+)"))
-			out.add(word);
-		return out.toArray(new String[out.size()]);
+	/**
+	 * Removes every edge that is not among the {@code maxNeighbors} heaviest edges of either of its sentences. Edges with
+	 * the same weight as a sentence's {@code maxNeighbors}th heaviest edge are kept.
+	 */
+	private static void keepHeaviestEdges(int[][] neighbors, double[][] similarities, int maxNeighbors) {
+		int size = neighbors.length;
+		int[] degrees = new int[size];
+		for (int i = 0; i < size; i++) {
+			degrees[i] += neighbors[i].length;
+			for (int j : neighbors[i])
+				degrees[j]++;
+		}
+		double[][] incident = new double[size][];
+		for (int i = 0; i < size; i++)
+			incident[i] = new double[degrees[i]];
+		Arrays.fill(degrees, 0);
+		for (int i = 0; i < size; i++) {
+			for (int c = 0; c < neighbors[i].length; c++) {
+				incident[i][degrees[i]++] = similarities[i][c];
+				incident[neighbors[i][c]][degrees[neighbors[i][c]]++] = similarities[i][c];
+			}
+		}
+		double[] cutoffs = new double[size];
+		for (int i = 0; i < size; i++) {
+			if (incident[i].length <= maxNeighbors)
+				cutoffs[i] = Double.NEGATIVE_INFINITY;
+			else {
+				Arrays.sort(incident[i]);
+				cutoffs[i] = incident[i][incident[i].length - maxNeighbors];
+			}
+			incident[i] = null;
+		}
+		for (int i = 0; i < size; i++) {
+			int kept = 0;
+			for (int c = 0; c < neighbors[i].length; c++) {
+				if (similarities[i][c] >= cutoffs[i] || similarities[i][c] >= cutoffs[neighbors[i][c]]) {
+					neighbors[i][kept] = neighbors[i][c];
+					similarities[i][kept++] = similarities[i][c];
+				}
+			}
+			neighbors[i] = Arrays.copyOf(neighbors[i], kept);
+			similarities[i] = Arrays.copyOf(similarities[i], kept);
+		}
 	}
 	
-	private static double similarity(String[] s1, String[] s2) {
-		double overlap = 0;
-		for (int i = 0; i < s1.length; i++)
-			for (int j = 0; j < s2.length; j++)
-				if (s1[i].equals(s2[j])) {
-					overlap++;
-					break;
-				}
-		return overlap / (Math.log(s1.length) + Math.log(s2.length) + 1);
+	/**
+	 * Runs the given action on each index in [0, {@code size}).
+	 * 
+	 * @param pool
+	 *            the {@link ForkJoinPool} on which to run the action or {@code null} to run it on the calling thread
+	 * @param size
+	 *            the number of indices
+	 * @param action
+	 *            the action
+	 */
+	static void forEach(ForkJoinPool pool, int size, IntConsumer action) {
+		if (pool != null)
+			pool.invoke(new RangeTask(0, size, action));
+		else
+			for (int i = 0; i < size; i++)
+				action.accept(i);
+	}
+	
+	/**
+	 * Runs an action on each index in a range on a {@link ForkJoinPool}, splitting the range in half until each part has at
+	 * most {@link #SENTENCES_PER_TASK} indices.
+	 */
+	private static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+		private final IntConsumer action;
+		
+		RangeTask(int from, int to, IntConsumer action) {
+			this.from = from;
+			this.to = to;
+			this.action = action;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= SENTENCES_PER_TASK) {
+				for (int i = from; i < to; i++)
+					action.accept(i);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeTask(from, mid, action), new RangeTask(mid, to, action));
+		}
+	}
+	
+	/**
+	 * Extracts the distinct words in a sentence as a sorted array of ids from the given {@link TokenTable}. Tokens without
+	 * any letters or digits (punctuation) are skipped. Only the ids of sentences that were extracted with the same
+	 * {@link TokenTable} can be compared.
+	 * 
+	 * @param sentence
+	 *            the sentence
+	 * @param vocabulary
+	 *            the {@link TokenTable} that assigns the ids
+	 * @return the sorted, distinct ids of the words in the sentence
+	 */
+	static int[] getWords(CoreMap sentence, TokenTable vocabulary) {
+		List<CoreLabel> tokens = sentence.get(TokensAnnotation.class);
+		int[] out = new int[tokens.size()];
+		int size = 0;
+		for (CoreLabel token : tokens)
+			if (isWord(token.word()))
+				out[size++] = vocabulary.id(token.word());
+		Arrays.sort(out, 0, size);
+		int unique = 0;
+		for (int i = 0; i < size; i++)
+			if (unique == 0 || out[unique - 1] != out[i])
+				out[unique++] = out[i];
+		return unique == out.length ? out : Arrays.copyOf(out, unique);
+	}
+	
+	private static boolean isWord(String word) {
+		for (int i = 0; i < word.length(); i++)
+			if (Character.isLetterOrDigit(word.charAt(i)))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Computes the TextRank similarity of two sentences from their words as returned by {@link #getWords(CoreMap, TokenTable)}.
+	 * 
+	 * @param s1
+	 *            the words in the first sentence
+	 * @param logLength1
+	 *            the natural logarithm of {@code s1.length}
+	 * @param s2
+	 *            the words in the second sentence
+	 * @param logLength2
+	 *            the natural logarithm of {@code s2.length}
+	 * @return the number of words that the sentences share normalized by their lengths
+	 */
+	static double similarity(int[] s1, double logLength1, int[] s2, double logLength2) {
+		if (s1.length == 0 || s2.length == 0)
+			return 0.0;
+		int overlap = 0;
+		for (int i = 0, j = 0; i < s1.length && j < s2.length;) { //Both arrays are sorted, so a merge finds the shared words
+			if (s1[i] < s2[j])
+				i++;
+			else if (s1[i] > s2[j])
+				j++;
+			else {
+				overlap++;
+				i++;
+				j++;
+			}
+		}
+		return overlap / (logLength1 + logLength2 + 1);
 	}
 	
 	/**
@@ -363,6 +707,122 @@ public class TextRank {
 		return getSortedRankedSentencesStream(sentences).collect(Collectors.toList());
 	}
 	
+	/**
+	 * Retrieves the ranks of the sentences in the given {@link Article Article's} text. If the {@link Article} does not
+	 * already have them (see {@link Article#getSentenceRanks()}), they are computed with the default
+	 * {@link TextRankOptions} and stored in the {@link Article} so that every validator and query can reuse them.
+	 * 
+	 * @param article
+	 *            the {@link Article}
+	 * @return the rank of each sentence in the text in the order in which the sentences appear
+	 */
+	public static double[] rankArticle(Article article) {
+		return rankArticle(article, getSentences(article));
+	}
+	
+	private static double[] rankArticle(Article article, List<CoreMap> sentences) {
+		double[] ranks = article.getSentenceRanks();
+		if (ranks != null && ranks.length == sentences.size())
+			return ranks;
+		Ranking<CoreMap> ranking = generateGraph(sentences).getRanking();
+		ranks = new double[ranking.size()];
+		for (int i = 0; i < ranks.length; i++)
+			ranks[i] = ranking.get(i).getY();
+		article.setSentenceRanks(ranks);
+		return ranks;
+	}
+	
+	private static List<CoreMap> getSentences(Article article) {
+		List<CoreMap> sentences = new ArrayList<>();
+		for (Annotation paragraph : article.getAnnotatedText(AnnotatorProfile.TOKENS))
+			sentences.addAll(paragraph.get(SentencesAnnotation.class));
+		return sentences;
+	}
+	
+	/**
+	 * Pairs the sentences in the given {@link Article Article's} text with their ranks as computed by
+	 * {@link #rankArticle(Article)}. This is equivalent to {@code getRankedSentences(article.getAnnotatedText())}, but the
+	 * ranks are only computed once per {@link Article}.
+	 * 
+	 * @param article
+	 *            the {@link Article}
+	 * @return a {@link List} of {@link Pair Pairs} of sentences and their ranks in the order in which the sentences appear
+	 */
+	public static List<Pair<CoreMap, Double>> getRankedSentences(Article article) {
+		List<CoreMap> sentences = getSentences(article);
+		double[] ranks = rankArticle(article, sentences);
+		List<Pair<CoreMap, Double>> out = new ArrayList<>(ranks.length);
+		for (int i = 0; i < ranks.length; i++)
+			out.add(new Pair<>(sentences.get(i), ranks[i]));
+		return out;
+	}
+	
+	/**
+	 * Pairs the sentences in the given {@link Article Article's} text with their ranks as computed by
+	 * {@link #rankArticle(Article)}.
+	 * 
+	 * @param article
+	 *            the {@link Article}
+	 * @return a {@link List} of {@link Pair Pairs} of sentences and their ranks sorted in <i>descending</i> order
+	 */
+	public static List<Pair<CoreMap, Double>> getSortedRankedSentences(Article article) {
+		List<Pair<CoreMap, Double>> out = getRankedSentences(article);
+		out.sort((a, b) -> b.getY().compareTo(a.getY()));
+		return out;
+	}
+	
+	/**
+	 * This method runs the TextRank algorithm before returning
+	 * 
+	 * @param options
+	 *            the {@link TextRankOptions} that control how the graph is built and ranked
+	 * @param document
+	 *            containers holding the text to be ranked
+	 * @return a {@link Ranking} of the sentences in the order in which they appear
+	 */
+	public static Ranking<CoreMap> getRankedSentences(TextRankOptions options, Annotation... document) {
+		return generateGraph(options, document).getRanking();
+	}
+	
+	/**
+	 * This method runs the TextRank algorithm before returning
+	 * 
+	 * @param options
+	 *            the {@link TextRankOptions} that control how the graph is built and ranked
+	 * @param document
+	 *            containers holding the text to be ranked
+	 * @return a {@link Ranking} of the sentences sorted in <i>descending</i> order
+	 */
+	public static Ranking<CoreMap> getSortedRankedSentences(TextRankOptions options, Annotation... document) {
+		return generateGraph(options, document).getSortedRanking();
+	}
+	
+	/**
+	 * This method runs the TextRank algorithm before returning
+	 * 
+	 * @param sentences
+	 *            a {@link List} holding the {@link CoreMap CoreMaps} representing the sentences to be ranked
+	 * @param options
+	 *            the {@link TextRankOptions} that control how the graph is built and ranked
+	 * @return a {@link Ranking} of the sentences in the order in which they appear
+	 */
+	public static Ranking<CoreMap> getRankedSentences(List<CoreMap> sentences, TextRankOptions options) {
+		return generateGraph(options, sentences).getRanking();
+	}
+	
+	/**
+	 * This method runs the TextRank algorithm before returning
+	 * 
+	 * @param sentences
+	 *            a {@link List} holding the {@link CoreMap CoreMaps} representing the sentences to be ranked
+	 * @param options
+	 *            the {@link TextRankOptions} that control how the graph is built and ranked
+	 * @return a {@link Ranking} of the sentences sorted in <i>descending</i> order
+	 */
+	public static Ranking<CoreMap> getSortedRankedSentences(List<CoreMap> sentences, TextRankOptions options) {
+		return generateGraph(options, sentences).getSortedRanking();
+	}
+	
 	/**
 	 * This method runs the TextRank algorithm before returning
 	 * 
@@ -377,7 +837,7 @@ public class TextRank {
 	 * @return a {@link Stream} containing {@link Pair Pairs} of objects and their ranks
 	 */
 	public static Stream<Pair<CoreMap, Double>> getRankedSentencesStream(Annotation document, int iterations, double threshold, double dampingFactor) {
-		return generateGraph(document).getRankedObjectsStream();
+		return generateGraph(new TextRankOptions(iterations, threshold, dampingFactor), document).getRankedObjectsStream();
 	}
 	
 	/**
@@ -394,7 +854,7 @@ public class TextRank {
 	 * @return a {@link Stream} containing {@link Pair Pairs} of objects and their ranks sorted in <i>descending</i> order
 	 */
 	public static Stream<Pair<CoreMap, Double>> getSortedRankedSentencesStream(Annotation document, int iterations, double threshold, double dampingFactor) {
-		return generateGraph(document).getSortedRankedObjectsStream();
+		return generateGraph(new TextRankOptions(iterations, threshold, dampingFactor), document).getSortedRankedObjectsStream();
 	}
 	
 	/**
@@ -411,7 +871,7 @@ public class TextRank {
 	 * @return a {@link List} of {@link Pair Pairs} of values and their ranks from the graph
 	 */
 	public static List<Pair<CoreMap, Double>> getRankedSentences(Annotation document, int iterations, double threshold, double dampingFactor) {
-		return getRankedSentencesStream(document).collect(Collectors.toList());
+		return getRankedSentencesStream(document, iterations, threshold, dampingFactor).collect(Collectors.toList());
 	}
 	
 	/**
@@ -428,7 +888,7 @@ public class TextRank {
 	 * @return a {@link List} of ranked objects sorted in <i>descending</i> order
 	 */
 	public static List<Pair<CoreMap, Double>> getSortedRankedSentences(Annotation document, int iterations, double threshold, double dampingFactor) {
-		return getSortedRankedSentencesStream(document).collect(Collectors.toList());
+		return getSortedRankedSentencesStream(document, iterations, threshold, dampingFactor).collect(Collectors.toList());
 	}
 	
 	/**
@@ -445,7 +905,7 @@ public class TextRank {
 	 * @return a {@link Stream} containing {@link Pair Pairs} of objects and their ranks
 	 */
 	public static Stream<Pair<CoreMap, Double>> getRankedSentencesStream(List<CoreMap> sentences, int iterations, double threshold, double dampingFactor) {
-		return generateGraph(sentences).getRankedObjectsStream();
+		return generateGraph(new TextRankOptions(iterations, threshold, dampingFactor), sentences).getRankedObjectsStream();
 	}
 	
 	/**
@@ -462,7 +922,7 @@ public class TextRank {
 	 * @return a {@link Stream} containing {@link Pair Pairs} of objects and their ranks sorted in <i>descending</i> order
 	 */
 	public static Stream<Pair<CoreMap, Double>> getSortedRankedSentencesStream(List<CoreMap> sentences, int iterations, double threshold, double dampingFactor) {
-		return generateGraph(sentences).getSortedRankedObjectsStream();
+		return generateGraph(new TextRankOptions(iterations, threshold, dampingFactor), sentences).getSortedRankedObjectsStream();
 	}
 	
 	/**
@@ -479,7 +939,7 @@ public class TextRank {
 	 * @return a {@link List} of {@link Pair Pairs} of values and their ranks from the graph
 	 */
 	public static List<Pair<CoreMap, Double>> getRankedSentences(List<CoreMap> sentences, int iterations, double threshold, double dampingFactor) {
-		return getRankedSentencesStream(sentences).collect(Collectors.toList());
+		return getRankedSentencesStream(sentences, iterations, threshold, dampingFactor).collect(Collectors.toList());
 	}
 	
 	/**
@@ -496,7 +956,7 @@ public class TextRank {
 	 * @return a {@link List} of ranked objects sorted in <i>descending</i> order
 	 */
 	public static List<Pair<CoreMap, Double>> getSortedRankedSentences(List<CoreMap> sentences, int iterations, double threshold, double dampingFactor) {
-		return getSortedRankedSentencesStream(sentences).collect(Collectors.toList());
+		return getSortedRankedSentencesStream(sentences, iterations, threshold, dampingFactor).collect(Collectors.toList());
 	}
 }
 
@@ -531,6 +991,50 @@ enum OutputType {
 			}
 			JSONSystem.writeJSON(array, writer);
 		}
+		
+		@Override
+		public void beginStream(Appendable writer) throws IOException {
+			writer.append('{').append(System.lineSeparator());
+		}
+		
+		@Override
+		public String formatArticle(Article article, List<Pair<CoreMap, Double>> ranked, boolean pos) {
+			StringBuilder out = new StringBuilder();
+			quote(String.valueOf(article.getID()), out.append('\t')).append(": ");
+			return appendSentences(out, ranked, pos).toString();
+		}
+		
+		@Override
+		public String separator() {
+			return "," + System.lineSeparator();
+		}
+		
+		@Override
+		public void endStream(Appendable writer) throws IOException {
+			writer.append(System.lineSeparator()).append('}').append(System.lineSeparator());
+		}
+	},
+	JSONL {
+		@Override
+		public void printOutput(Appendable writer, Map<Article, List<Pair<CoreMap, Double>>> ranked, boolean pos) throws IOException {
+			for (Entry<Article, List<Pair<CoreMap, Double>>> e : ranked.entrySet())
+				writer.append(formatArticle(e.getKey(), e.getValue(), pos));
+			if (writer instanceof Flushable)
+				((Flushable) writer).flush();
+		}
+		
+		@Override
+		public void printOutput(Appendable writer, List<Pair<CoreMap, Double>> ranked, boolean pos) throws IOException {
+			writer.append(appendSentences(new StringBuilder(), ranked, pos)).append(System.lineSeparator());
+			if (writer instanceof Flushable)
+				((Flushable) writer).flush();
+		}
+		
+		@Override
+		public String formatArticle(Article article, List<Pair<CoreMap, Double>> ranked, boolean pos) {
+			StringBuilder out = new StringBuilder().append("{\"id\": ").append(article.getID()).append(", \"sentences\": ");
+			return appendSentences(out, ranked, pos).append('}').append(System.lineSeparator()).toString();
+		}
 	},
 	LIST {
 		@Override
@@ -553,6 +1057,18 @@ enum OutputType {
 			if (writer instanceof Flushable)
 				((Flushable) writer).flush();
 		}
+		
+		@Override
+		public String formatArticle(Article article, List<Pair<CoreMap, Double>> ranked, boolean pos) {
+			StringBuilder out = new StringBuilder();
+			try {
+				printOutput(out.append(border).append(article.getID()).append(border).append(System.lineSeparator()), ranked, pos);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e); //StringBuilder does not throw IOExceptions
+			}
+			return out.toString();
+		}
 	};
 	
 	private static final String border = "-------------------------";
@@ -560,32 +1076,101 @@ enum OutputType {
 	public abstract void printOutput(Appendable writer, Map<Article, List<Pair<CoreMap, Double>>> ranked, boolean pos) throws IOException;
 	
 	public abstract void printOutput(Appendable writer, List<Pair<CoreMap, Double>> ranked, boolean pos) throws IOException;
+	
+	/**
+	 * Formats the output for a single {@link Article} so that it can be written with {@link #beginStream(Appendable)},
+	 * {@link #separator()}, and {@link #endStream(Appendable)} as soon as it is ready. This does not touch the output, so it
+	 * can be called from any thread.
+	 * 
+	 * @param article
+	 *            the {@link Article}
+	 * @param ranked
+	 *            the ranked sentences of the {@link Article}
+	 * @param pos
+	 *            whether the sentences should be printed with their PoS tags
+	 * @return the formatted output
+	 */
+	public abstract String formatArticle(Article article, List<Pair<CoreMap, Double>> ranked, boolean pos);
+	
+	public void beginStream(Appendable writer) throws IOException {/* Most formats do not have a header */}
+	
+	public String separator() {
+		return "";
+	}
+	
+	public void endStream(Appendable writer) throws IOException {/* Most formats do not have a footer */}
+	
+	private static StringBuilder appendSentences(StringBuilder out, List<Pair<CoreMap, Double>> ranked, boolean pos) {
+		Function<CoreMap, String> converter = pos ? POSTagger::tag : POSTagger::reconstructSentence;
+		out.append('[');
+		for (int i = 0; i < ranked.size(); i++) {
+			if (i > 0)
+				out.append(", ");
+			quote(converter.apply(ranked.get(i).getX()), out.append('[').append(ranked.get(i).getY()).append(", ")).append(']');
+		}
+		return out.append(']');
+	}
+	
+	private static StringBuilder quote(String str, StringBuilder out) {
+		out.append('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+				case '"':
+				case '\\':
+					out.append('\\').append(c);
+					break;
+				case '\n':
+					out.append("\\n");
+					break;
+				case '\r':
+					out.append("\\r");
+					break;
+				case '\t':
+					out.append("\\t");
+					break;
+				default:
+					if (c < 0x20)
+						out.append(String.format("\\u%04x", (int) c));
+					else
+						out.append(c);
+			}
+		}
+		return out.append('"');
+	}
 }
 
 enum InputType {
 	ID {
 		@Override
-		public Collection<Article> getArticles(InputStream input, ArticleManager am) {
+		public void forEachArticle(InputStream input, ArticleManager am, Consumer<Article> sink, int maxInFlight) throws SQLException {
 			String inp = "";
 			try (Scanner scanner = new Scanner(input)) {
 				inp = scanner.nextLine();
 			}
-			Collection<Article> out = new LinkedHashSet<>();
+			Collection<Integer> ids = new LinkedHashSet<>();
 			for (String id : inp.split("(,\\s*|\\s+)")) {
 				try {
-					out.add(am.load(Integer.parseInt(id)));
+					ids.add(Integer.parseInt(id));
 				}
-				catch (NumberFormatException | ClassNotFoundException | SQLException | IOException e) {
+				catch (NumberFormatException e) {
 					TextRank.logger.error(id + " is not a valid article id.", e);
 				}
 			}
-			return out;
+			if (ids.size() == 0) //ArticleManager loads every article when it is given an empty collection
+				return;
+			int[] loaded = {0};
+			am.loadArticles(ids, article -> {
+				loaded[0]++;
+				sink.accept(article);
+			}, maxInFlight, EnumSet.of(ArticlePart.TOKENS));
+			if (loaded[0] < ids.size())
+				TextRank.logger.warn((ids.size() - loaded[0]) + " of the " + ids.size() + " article ids were not found.");
 		}
 	},
 	TEXT {
 		@Override
-		public Collection<Article> getArticles(InputStream input, ArticleManager am) {
-			Collection<Article> out = new LinkedHashSet<>();
+		public void forEachArticle(InputStream input, ArticleManager am, Consumer<Article> sink, int maxInFlight) {
 			Pattern articleSplit = Pattern.compile("[\\-]{5,}(\\d+)?.*");
 			String title = null;
 			StringBuilder text = new StringBuilder();
@@ -598,7 +1183,7 @@ enum InputType {
 				Matcher m = articleSplit.matcher(line);
 				if (m.matches()) {
 					if (text.length() > 0)
-						out.add(new Article(title, text.toString().trim(), (URL) null, (Source) null, id));
+						sink.accept(new Article(title, text.toString().trim(), (URL) null, (Source) null, id));
 					text.delete(0, text.length());
 					title = null;
 					id = m.group(1) == null ? null : Integer.parseInt(m.group(1));
@@ -611,10 +1196,15 @@ enum InputType {
 				}
 			}
 			if (text.length() > 0)
-				out.add(new Article(title, text.toString().trim(), (URL) null, (Source) null, id));
-			return out;
+				sink.accept(new Article(title, text.toString().trim(), (URL) null, (Source) null, id));
 		}
 	};
 	
-	public abstract Collection<Article> getArticles(InputStream input, ArticleManager am);
+	public Collection<Article> getArticles(InputStream input, ArticleManager am) throws SQLException {
+		Collection<Article> out = new LinkedHashSet<>();
+		forEachArticle(input, am, out::add, ArticleManager.DEFAULT_MAX_IN_FLIGHT);
+		return out;
+	}
+	
+	public abstract void forEachArticle(InputStream input, ArticleManager am, Consumer<Article> sink, int maxInFlight) throws SQLException;
 }
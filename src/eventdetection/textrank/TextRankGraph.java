@@ -8,7 +8,8 @@ import java.util.stream.Stream;
 import toberumono.structures.tuples.Pair;
 
 /**
- * The graph used for the various TextRank algorithms.
+ * The graph used for the various TextRank algorithms. Edges are stored in primitive arrays and converted into a
+ * {@link TextRankMatrix} when the graph is ranked.
  * 
  * @author Joshua Lipstone
  * @param <T>
@@ -17,8 +18,11 @@ import toberumono.structures.tuples.Pair;
 public class TextRankGraph<T> {
 	private TextRankNode<T>[] nodes;
 	private int position;
-	private final int maxIterations;
-	private final double threshold, dampingFactor;
+	private int[] sources, targets;
+	private double[] weights;
+	private int edges;
+	private final TextRankOptions options;
+	private ConvergenceStatistics statistics;
 	private boolean changed;
 	
 	/**
@@ -34,13 +38,27 @@ public class TextRankGraph<T> {
 	 *            the damping factor for the ranking algorithm
 	 */
 	public TextRankGraph(int initArraySize, int maxIterations, double threshold, double dampingFactor) {
+		this(initArraySize, new TextRankOptions(maxIterations, threshold, dampingFactor));
+	}
+	
+	/**
+	 * Creates a new {@link TextRankGraph}
+	 * 
+	 * @param initArraySize
+	 *            the initial array size
+	 * @param options
+	 *            the {@link TextRankOptions} that control the ranking algorithm
+	 */
+	public TextRankGraph(int initArraySize, TextRankOptions options) {
 		this.position = 0;
 		@SuppressWarnings("unchecked")
 		final TextRankNode<T>[] nodes = (TextRankNode<T>[]) new TextRankNode<?>[initArraySize < 3 ? 3 : initArraySize];
 		this.nodes = nodes;
-		this.maxIterations = maxIterations;
-		this.threshold = threshold;
-		this.dampingFactor = dampingFactor;
+		sources = new int[this.nodes.length * 2];
+		targets = new int[sources.length];
+		weights = new double[sources.length];
+		edges = 0;
+		this.options = options;
 		changed = false;
 	}
 	
@@ -70,11 +88,51 @@ public class TextRankGraph<T> {
 	 *            the target {@link TextRankNode}
 	 */
 	public void addEdge(int n1, double weight, int n2) {
-		nodes[n1].addOut(new TextRankEdge<>(weight, nodes[n2]));
-		nodes[n2].addIn(new TextRankEdge<>(weight, nodes[n1]));
+		if (n1 >= position || n2 >= position)
+			throw new IndexOutOfBoundsException("Both endpoints of an edge must already be in the graph.");
+		if (edges >= sources.length)
+			ensureEdgeCapacity((int) (sources.length * 1.5));
+		sources[edges] = n1;
+		targets[edges] = n2;
+		weights[edges++] = weight;
 		changed = true;
 	}
 	
+	/**
+	 * Expands the graph's edge arrays so that at least {@code capacity} edges can be added without expanding them again.
+	 * 
+	 * @param capacity
+	 *            the number of edges that the graph should be able to hold
+	 */
+	public void ensureEdgeCapacity(int capacity) {
+		if (capacity <= sources.length)
+			return;
+		sources = Arrays.copyOf(sources, capacity);
+		targets = Arrays.copyOf(targets, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+	}
+	
+	/**
+	 * @return the number of {@link TextRankNode TextRankNodes} in the graph
+	 */
+	public int size() {
+		return position;
+	}
+	
+	/**
+	 * @return the number of directed edges in the graph
+	 */
+	public int edgeCount() {
+		return edges;
+	}
+	
+	/**
+	 * @return the graph in the form that the ranking algorithm runs on
+	 */
+	public TextRankMatrix toMatrix() {
+		return TextRankMatrix.of(position, sources, targets, weights, edges);
+	}
+	
 	/**
 	 * Runs the ranking algorithm on the graph
 	 */
@@ -82,36 +140,21 @@ public class TextRankGraph<T> {
 		if (!changed)
 			return;
 		changed = false;
+		long start = System.nanoTime();
+		TextRankMatrix matrix = toMatrix();
+		double[] ranks = new double[position];
+		ConvergenceStatistics run = matrix.rank(ranks, options);
 		for (int i = 0; i < position; i++)
-			nodes[i].setRank(1.0);
-		double[] rankings = new double[position];
-		double negDampingFactor = 1 - dampingFactor, largestDifference = Double.MAX_VALUE, diff, sum = 0.0;
-		TextRankEdge<T>[] ins = null, outs = null;
-		int insSize, outsSize;
-		for (int iter = 0; iter < maxIterations && largestDifference > threshold; iter++) {
-			largestDifference = 0.0;
-			for (int i = 0; i < rankings.length; i++) {
-				rankings[i] = 0.0;
-				ins = nodes[i].getIns();
-				insSize = nodes[i].insSize();
-				for (int j = 0; j < insSize; j++) {
-					sum = 0.0;
-					outs = ins[j].getTarget().getOuts();
-					outsSize = ins[j].getTarget().outsSize();
-					for (int k = 0; k < outsSize; k++)
-						sum += outs[k].getWeight();
-					if (sum != 0) //Accounts for the possibility of wholly unrelated sentences
-						rankings[i] += (ins[j].getWeight() / sum * ins[j].getTarget().getRank());
-				}
-				rankings[i] = negDampingFactor + dampingFactor * rankings[i];
-			}
-			for (int i = 0; i < rankings.length; i++) {
-				diff = Math.abs(nodes[i].getRank() - rankings[i]);
-				if (diff > largestDifference)
-					largestDifference = diff;
-				nodes[i].setRank(rankings[i]);
-			}
-		}
+			nodes[i].setRank(ranks[i]);
+		statistics = new ConvergenceStatistics(run.getIterations(), run.getResidual(), run.hasConverged(), System.nanoTime() - start, run.getNodes(), run.getEdges());
+	}
+	
+	/**
+	 * @return the {@link ConvergenceStatistics} of the last time that the ranking algorithm was run on the graph (including
+	 *         the time taken to build the {@link TextRankMatrix}) or {@code null} if it has not been run
+	 */
+	public ConvergenceStatistics getStatistics() {
+		return statistics;
 	}
 	
 	/**
@@ -150,4 +193,28 @@ public class TextRankGraph<T> {
 	public List<Pair<T, Double>> getSortedRankedObjects() {
 		return getSortedRankedObjectsStream().collect(Collectors.toList());
 	}
+	
+	/**
+	 * This method runs the ranking algorithm ({@link #rankNodes()}) on the graph before returning.
+	 * 
+	 * @return a {@link Ranking} of the values in the graph in the order in which they were added
+	 */
+	public Ranking<T> getRanking() {
+		rankNodes();
+		Ranking<T> out = new Ranking<>(position, statistics);
+		getRankedObjectsStream().forEachOrdered(out::add);
+		return out;
+	}
+	
+	/**
+	 * This method runs the ranking algorithm ({@link #rankNodes()}) on the graph before returning.
+	 * 
+	 * @return a {@link Ranking} of the values in the graph sorted in <i>descending</i> order
+	 */
+	public Ranking<T> getSortedRanking() {
+		rankNodes();
+		Ranking<T> out = new Ranking<>(position, statistics);
+		getSortedRankedObjectsStream().forEachOrdered(out::add);
+		return out;
+	}
 }
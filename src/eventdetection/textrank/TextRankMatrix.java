@@ -0,0 +1,203 @@
+package eventdetection.textrank;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The compressed sparse row (CSR) form of a {@link TextRankGraph} that the ranking algorithm runs on. The in-edges of each
+ * node are stored contiguously in primitive arrays, and each edge's weight is divided by the sum of the weights of its
+ * source's out-edges when the matrix is built so that each iteration only has to multiply and add. Large matrices can be
+ * ranked on a {@link ForkJoinPool}, in which case each iteration is split into ranges of nodes with similar numbers of
+ * in-edges.
+ * 
+ * @author Joshua Lipstone
+ */
+public final class TextRankMatrix {
+	/**
+	 * The number of edges below which {@link #rank(int, double, double, ForkJoinPool)} runs on the calling thread
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 15;
+	private static final int EDGES_PER_TASK = 1 << 13;
+	
+	private final int size;
+	private final int[] offsets; //The in-edges of node i are [offsets[i], offsets[i + 1])
+	private final int[] sources;
+	private final double[] weights;
+	
+	private TextRankMatrix(int size, int[] offsets, int[] sources, double[] weights) {
+		this.size = size;
+		this.offsets = offsets;
+		this.sources = sources;
+		this.weights = weights;
+	}
+	
+	/**
+	 * Builds a {@link TextRankMatrix} from a list of directed edges. Edge {@code e} goes from {@code from[e]} to
+	 * {@code to[e]} with weight {@code weight[e]}.
+	 * 
+	 * @param size
+	 *            the number of nodes
+	 * @param from
+	 *            the source node of each edge
+	 * @param to
+	 *            the target node of each edge
+	 * @param weight
+	 *            the weight of each edge
+	 * @param edgeCount
+	 *            the number of edges in the arrays (the arrays may be longer)
+	 * @return the {@link TextRankMatrix}
+	 */
+	public static TextRankMatrix of(int size, int[] from, int[] to, double[] weight, int edgeCount) {
+		int[] offsets = new int[size + 1];
+		double[] outWeights = new double[size];
+		for (int e = 0; e < edgeCount; e++) {
+			offsets[to[e] + 1]++;
+			outWeights[from[e]] += weight[e];
+		}
+		for (int i = 0; i < size; i++)
+			offsets[i + 1] += offsets[i];
+		int[] sources = new int[edgeCount], next = Arrays.copyOf(offsets, size);
+		double[] weights = new double[edgeCount];
+		for (int e = 0, pos; e < edgeCount; e++) { //This is stable, so each node's in-edges stay in the order in which they were added
+			pos = next[to[e]]++;
+			sources[pos] = from[e];
+			weights[pos] = outWeights[from[e]] != 0 ? weight[e] / outWeights[from[e]] : 0.0; //Accounts for the possibility of wholly unrelated sentences
+		}
+		return new TextRankMatrix(size, offsets, sources, weights);
+	}
+	
+	/**
+	 * @return the number of nodes in the {@link TextRankMatrix}
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the number of edges in the {@link TextRankMatrix}
+	 */
+	public int edgeCount() {
+		return sources.length;
+	}
+	
+	/**
+	 * Runs the ranking algorithm on the {@link TextRankMatrix} on the calling thread. Every node starts with a rank of 1.0.
+	 * 
+	 * @param maxIterations
+	 *            the maximum number of iterations to run the ranking algorithm for
+	 * @param threshold
+	 *            the algorithm stops once no rank changes by more than this in an iteration
+	 * @param dampingFactor
+	 *            the damping factor for the ranking algorithm
+	 * @return the rank of each node
+	 */
+	public double[] rank(int maxIterations, double threshold, double dampingFactor) {
+		return rank(maxIterations, threshold, dampingFactor, null);
+	}
+	
+	/**
+	 * Runs the ranking algorithm on the {@link TextRankMatrix}. Every node starts with a rank of 1.0. The result does not
+	 * depend on whether the iterations are run in parallel.
+	 * 
+	 * @param maxIterations
+	 *            the maximum number of iterations to run the ranking algorithm for
+	 * @param threshold
+	 *            the algorithm stops once no rank changes by more than this in an iteration
+	 * @param dampingFactor
+	 *            the damping factor for the ranking algorithm
+	 * @param pool
+	 *            the {@link ForkJoinPool} on which to run the iterations if the {@link TextRankMatrix} has at least
+	 *            {@link #PARALLEL_THRESHOLD} edges or {@code null} to run them on the calling thread
+	 * @return the rank of each node
+	 */
+	public double[] rank(int maxIterations, double threshold, double dampingFactor, ForkJoinPool pool) {
+		double[] ranks = new double[size];
+		rank(ranks, new TextRankOptions(maxIterations, threshold, dampingFactor).setPool(pool));
+		return ranks;
+	}
+	
+	/**
+	 * Runs the ranking algorithm on the {@link TextRankMatrix} with the given {@link TextRankOptions}. Every node starts
+	 * with a rank of 1.0. If {@link TextRankOptions#isGaussSeidel()} is {@code true}, each rank is updated in place as soon
+	 * as it is computed and the iterations are always run on the calling thread. Otherwise, the result does not depend on
+	 * whether the iterations are run in parallel.
+	 * 
+	 * @param ranks
+	 *            the array into which the rank of each node is written. It must have at least {@link #size()} elements
+	 * @param options
+	 *            the {@link TextRankOptions} that control the ranking algorithm
+	 * @return the {@link ConvergenceStatistics} of the run
+	 */
+	public ConvergenceStatistics rank(double[] ranks, TextRankOptions options) {
+		long start = System.nanoTime();
+		int maxIterations = options.getIterations();
+		double threshold = options.getThreshold(), dampingFactor = options.getDampingFactor();
+		ForkJoinPool pool = options.getPool();
+		boolean gaussSeidel = options.isGaussSeidel(), parallel = !gaussSeidel && pool != null && edgeCount() >= PARALLEL_THRESHOLD;
+		double[] current = ranks, next = gaussSeidel ? ranks : new double[size], temp;
+		Arrays.fill(ranks, 0, size, 1.0);
+		double largestDifference = Double.POSITIVE_INFINITY;
+		int iter = 0;
+		for (; iter < maxIterations && largestDifference > threshold; iter++) {
+			largestDifference = parallel ? pool.invoke(new Iteration(0, size, current, next, dampingFactor)) : iterate(0, size, current, next, dampingFactor);
+			if (!gaussSeidel) {
+				temp = current;
+				current = next;
+				next = temp;
+			}
+		}
+		if (current != ranks)
+			System.arraycopy(current, 0, ranks, 0, size);
+		return new ConvergenceStatistics(iter, largestDifference, largestDifference <= threshold, System.nanoTime() - start, size, edgeCount());
+	}
+	
+	/**
+	 * Computes the next ranks of the nodes in [{@code from}, {@code to}). If {@code ranks} and {@code next} are the same
+	 * array, this is a Gauss-Seidel iteration.
+	 * 
+	 * @return the largest change in rank among those nodes
+	 */
+	private double iterate(int from, int to, double[] ranks, double[] next, double dampingFactor) {
+		double negDampingFactor = 1 - dampingFactor, largestDifference = 0.0, diff, sum, rank;
+		for (int i = from; i < to; i++) {
+			sum = 0.0;
+			for (int e = offsets[i], end = offsets[i + 1]; e < end; e++)
+				sum += weights[e] * ranks[sources[e]];
+			rank = negDampingFactor + dampingFactor * sum;
+			diff = Math.abs(rank - ranks[i]);
+			next[i] = rank;
+			if (diff > largestDifference)
+				largestDifference = diff;
+		}
+		return largestDifference;
+	}
+	
+	private final class Iteration extends RecursiveTask<Double> {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+		private final double[] ranks, next;
+		private final double dampingFactor;
+		
+		Iteration(int from, int to, double[] ranks, double[] next, double dampingFactor) {
+			this.from = from;
+			this.to = to;
+			this.ranks = ranks;
+			this.next = next;
+			this.dampingFactor = dampingFactor;
+		}
+		
+		@Override
+		protected Double compute() {
+			if (to - from < 2 || offsets[to] - offsets[from] <= EDGES_PER_TASK)
+				return iterate(from, to, ranks, next, dampingFactor);
+			int mid = from + 1, half = (offsets[from] + offsets[to]) >>> 1;
+			while (mid < to - 1 && offsets[mid] < half) //Splits the range into halves with similar numbers of edges
+				mid++;
+			Iteration right = new Iteration(mid, to, ranks, next, dampingFactor);
+			right.fork();
+			double left = new Iteration(from, mid, ranks, next, dampingFactor).compute();
+			return Math.max(left, right.join());
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package eventdetection.textrank;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The parameters that control how {@link TextRank} builds and ranks a {@link TextRankGraph}. The setters return the
+ * {@link TextRankOptions} so that they can be chained.
+ * 
+ * @author Joshua Lipstone
+ */
+public class TextRankOptions {
+	/**
+	 * The default maximum number of iterations
+	 */
+	public static final int DEFAULT_ITERATIONS = 100;
+	/**
+	 * The default convergence threshold
+	 */
+	public static final double DEFAULT_THRESHOLD = 0.0001;
+	/**
+	 * The default damping factor
+	 */
+	public static final double DEFAULT_DAMPING_FACTOR = 0.8;
+	
+	private int iterations;
+	private double threshold, dampingFactor;
+	private ForkJoinPool pool;
+	private double minimumWeight;
+	private int maxNeighbors, lshBands, lshRows;
+	private boolean gaussSeidel;
+	
+	/**
+	 * Creates a new {@link TextRankOptions} with the default parameters that runs sequentially.
+	 */
+	public TextRankOptions() {
+		this(DEFAULT_ITERATIONS, DEFAULT_THRESHOLD, DEFAULT_DAMPING_FACTOR);
+	}
+	
+	/**
+	 * Creates a new {@link TextRankOptions} with the given parameters that runs sequentially.
+	 * 
+	 * @param iterations
+	 *            the maximum number of iterations to run the ranking algorithm for
+	 * @param threshold
+	 *            the convergence threshold for the ranking algorithm
+	 * @param dampingFactor
+	 *            the damping factor for the ranking algorithm
+	 */
+	public TextRankOptions(int iterations, double threshold, double dampingFactor) {
+		this.iterations = iterations;
+		this.threshold = threshold;
+		this.dampingFactor = dampingFactor;
+		pool = null;
+		minimumWeight = 0.0;
+		maxNeighbors = 0;
+		lshBands = 0;
+		lshRows = 0;
+		gaussSeidel = false;
+	}
+	
+	/**
+	 * @return the maximum number of iterations to run the ranking algorithm for
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+	
+	/**
+	 * @param iterations
+	 *            the maximum number of iterations to run the ranking algorithm for
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setIterations(int iterations) {
+		this.iterations = iterations;
+		return this;
+	}
+	
+	/**
+	 * @return the convergence threshold for the ranking algorithm
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+	
+	/**
+	 * @param threshold
+	 *            the convergence threshold for the ranking algorithm
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setThreshold(double threshold) {
+		this.threshold = threshold;
+		return this;
+	}
+	
+	/**
+	 * @return the damping factor for the ranking algorithm
+	 */
+	public double getDampingFactor() {
+		return dampingFactor;
+	}
+	
+	/**
+	 * @param dampingFactor
+	 *            the damping factor for the ranking algorithm
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setDampingFactor(double dampingFactor) {
+		this.dampingFactor = dampingFactor;
+		return this;
+	}
+	
+	/**
+	 * @return the {@link ForkJoinPool} on which large graphs are built and ranked or {@code null} if they are built and
+	 *         ranked on the calling thread
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+	
+	/**
+	 * Sets the {@link ForkJoinPool} on which large graphs are built and ranked. Graphs below
+	 * {@link TextRank#PARALLEL_THRESHOLD} sentences are built and graphs below {@link TextRankMatrix#PARALLEL_THRESHOLD}
+	 * edges are ranked on the calling thread regardless.
+	 * 
+	 * @param pool
+	 *            the {@link ForkJoinPool} or {@code null} to build and rank every graph on the calling thread
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setPool(ForkJoinPool pool) {
+		this.pool = pool;
+		return this;
+	}
+	
+	/**
+	 * Equivalent to {@code setPool(parallel ? ForkJoinPool.commonPool() : null)}.
+	 * 
+	 * @param parallel
+	 *            whether large graphs should be built and ranked in parallel
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setParallel(boolean parallel) {
+		return setPool(parallel ? ForkJoinPool.commonPool() : null);
+	}
+	
+	/**
+	 * @return the weight that an edge must exceed to be added to the graph
+	 */
+	public double getMinimumWeight() {
+		return minimumWeight;
+	}
+	
+	/**
+	 * Sets the weight that an edge must exceed to be added to the graph. The default, 0.0, only drops the edges between
+	 * sentences that do not share any words, which does not change the ranks.
+	 * 
+	 * @param minimumWeight
+	 *            the weight that an edge must exceed to be added to the graph
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setMinimumWeight(double minimumWeight) {
+		this.minimumWeight = minimumWeight;
+		return this;
+	}
+	
+	/**
+	 * @return the number of neighbors with the heaviest edges that each sentence keeps or 0 if every edge is kept
+	 */
+	public int getMaxNeighbors() {
+		return maxNeighbors;
+	}
+	
+	/**
+	 * Limits the graph to the edges between each sentence and the {@code maxNeighbors} sentences that are most similar to
+	 * it. An edge is kept if it is among the heaviest {@code maxNeighbors} edges of either of its sentences, so the graph
+	 * stays symmetric.
+	 * 
+	 * @param maxNeighbors
+	 *            the number of neighbors to keep or 0 to keep every edge
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setMaxNeighbors(int maxNeighbors) {
+		this.maxNeighbors = maxNeighbors;
+		return this;
+	}
+	
+	/**
+	 * @return the number of bands in the MinHash signatures used to find candidate pairs or 0 if every pair is compared
+	 */
+	public int getLSHBands() {
+		return lshBands;
+	}
+	
+	/**
+	 * @return the number of rows in each band of the MinHash signatures used to find candidate pairs
+	 */
+	public int getLSHRows() {
+		return lshRows;
+	}
+	
+	/**
+	 * Compares only the pairs of sentences whose MinHash signatures share a band instead of every pair of sentences. More
+	 * bands find more of the similar pairs, and more rows per band discard more of the dissimilar ones.
+	 * 
+	 * @param bands
+	 *            the number of bands or 0 to compare every pair
+	 * @param rows
+	 *            the number of rows in each band
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setLSH(int bands, int rows) {
+		if (bands > 0 && rows < 1)
+			throw new IllegalArgumentException("Each band must have at least one row.");
+		lshBands = bands;
+		lshRows = rows;
+		return this;
+	}
+	
+	/**
+	 * @return {@code true} iff each rank is updated in place as soon as it is computed
+	 */
+	public boolean isGaussSeidel() {
+		return gaussSeidel;
+	}
+	
+	/**
+	 * Sets whether each rank is updated in place as soon as it is computed (Gauss-Seidel iteration) instead of once every
+	 * rank in an iteration has been computed (Jacobi iteration). Gauss-Seidel iteration tends to converge in fewer
+	 * iterations on sparse graphs (see {@link #setMaxNeighbors(int)}), but it can take more iterations on dense graphs, it
+	 * always runs on the calling thread, and its result depends on the order of the nodes. Use the
+	 * {@link ConvergenceStatistics} in a {@link Ranking} to compare the two on a given corpus.
+	 * 
+	 * @param gaussSeidel
+	 *            whether each rank should be updated in place
+	 * @return the {@link TextRankOptions} (for chaining purposes)
+	 */
+	public TextRankOptions setGaussSeidel(boolean gaussSeidel) {
+		this.gaussSeidel = gaussSeidel;
+		return this;
+	}
+}
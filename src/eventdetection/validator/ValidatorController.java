@@ -32,7 +32,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import toberumono.json.JSONArray;
+import toberumono.json.JSONBoolean;
 import toberumono.json.JSONData;
+import toberumono.json.JSONNumber;
 import toberumono.json.JSONObject;
 import toberumono.json.JSONString;
 import toberumono.json.JSONSystem;
@@ -43,6 +45,7 @@ import static eventdetection.common.ThreadingUtils.pool;
 import eventdetection.common.Article;
 import eventdetection.common.ArticleManager;
 import eventdetection.common.DBConnection;
+import eventdetection.common.LongHashSet;
 import eventdetection.common.Query;
 import eventdetection.common.ThreadingUtils;
 import eventdetection.pipeline.PipelineComponent;
@@ -56,16 +59,27 @@ import eventdetection.validator.types.Validator;
 import eventdetection.validator.types.ValidatorType;
 
 /**
- * A class that manages multiple validation algorithms and allows them to run in parallel.
+ * A class that manages multiple validation algorithms and allows them to run in parallel.<br>
+ * The results are written to the database in JDBC batches that are committed individually. The optional
+ * "validation-results" section of the configuration file can hold "batch-size" (the number of results per batch,
+ * {@value #DEFAULT_BATCH_SIZE} by default) and "log-results" (whether to log every result that is written, {@code false} by
+ * default).
  * 
  * @author Joshua Lipstone
  */
 public class ValidatorController implements PipelineComponent, Closeable {
+	/**
+	 * The default number of {@link ValidationResult ValidationResults} that are written to the database in each batch
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	
 	private final Connection connection;
 	private final Map<ValidatorType, Map<String, ValidatorWrapper<?>>> validators;
 	private static final Logger logger = LoggerFactory.getLogger("ValidatorController");
 	private final ArticleManager articleManager;
 	private final String validatorsTable, resultsTable;
+	private final int batchSize;
+	private final boolean logResults;
 	
 	/**
 	 * Constructs a {@link ValidatorController} with the given configuration data.
@@ -85,6 +99,9 @@ public class ValidatorController implements PipelineComponent, Closeable {
 		this.articleManager = new ArticleManager(connection, ((JSONObject) config.get("tables")).get("articles").value().toString(), paths, articles);
 		validatorsTable = ((JSONString) ((JSONObject) config.get("tables")).get("validators")).value();
 		resultsTable = ((JSONString) ((JSONObject) config.get("tables")).get("results")).value();
+		JSONObject results = config.get("validation-results") instanceof JSONObject ? (JSONObject) config.get("validation-results") : new JSONObject();
+		batchSize = results.get("batch-size") instanceof JSONNumber ? Math.max(((JSONNumber<?>) results.get("batch-size")).value().intValue(), 1) : DEFAULT_BATCH_SIZE;
+		logResults = results.get("log-results") instanceof JSONBoolean && ((JSONBoolean) results.get("log-results")).value();
 		loadValidators(((JSONArray) paths.get("validators")).value().stream().map(a -> Paths.get(((JSONString) a).value())).collect(Collectors.toList()));
 	}
 	
@@ -263,56 +280,47 @@ public class ValidatorController implements PipelineComponent, Closeable {
 				}
 			}
 			//Unfortunately, we can only perform existence checks for one-to-one validation algorithms
-			try (PreparedStatement stmt = connection.prepareStatement("select * from " + resultsTable + " as vr where vr.query = ? and vr.algorithm = ? and vr.article = ?")) {
+			Map<Integer, LongHashSet> existing = loadExistingResults(queries.keySet(), articles.keySet(), results);
+			for (ValidatorWrapper<?> vw : validators.get(ValidatorType.OneToOne).values()) {
+				LongHashSet scored = existing.get(vw.getID());
 				for (Query query : queries.values()) {
-					stmt.setInt(1, query.getID());
 					for (Article article : articles.values()) {
-						stmt.setInt(3, article.getID());
-						for (ValidatorWrapper<?> vw : validators.get(ValidatorType.OneToOne).values()) {
-							stmt.setInt(2, vw.getID());
-							try (ResultSet rs = stmt.executeQuery()) {
-								if (rs.next()) { //If we've already processed the current article with the current validator for the current query
-									results.add(new ValidationResult(rs, vw)); //Add the results for (query, article, algorithm) tuples that we have already processed
-									continue;
-								}
-							}
-							try {
-								futureResults.add(new Triple<>(query.getID(), vw, pool.submit(() -> vw.validate(query, article))));
-							}
-							catch (IllegalArgumentException e) {
-								logger.error("Unable to initialize the validator, " + vw.getName() + ", for query " + query.getID() + " and article " + article.getID(), e);
-							}
+						if (scored != null && scored.contains(LongHashSet.pack(query.getID(), article.getID()))) //If we've already processed the current article with the current validator for the current query
+							continue;
+						try {
+							futureResults.add(new Triple<>(query.getID(), vw, pool.submit(() -> vw.validate(query, article))));
+						}
+						catch (IllegalArgumentException e) {
+							logger.error("Unable to initialize the validator, " + vw.getName() + ", for query " + query.getID() + " and article " + article.getID(), e);
 						}
 					}
 				}
 			}
 			String statement = "insert into " + resultsTable + " as vr (query, algorithm, article, validates, invalidates) values (?, ?, ?, ?, ?) " +
 					"ON CONFLICT (query, algorithm, article) DO UPDATE set (validates, invalidates) = (EXCLUDED.validates, EXCLUDED.invalidates)"; //This is valid as of PostgreSQL 9.5
+			boolean autoCommit = connection.getAutoCommit();
+			int written = 0, batches = 0;
 			try (PreparedStatement stmt = connection.prepareStatement(statement)) {
+				connection.setAutoCommit(false); //Each batch is committed on its own so that a failure only affects the batch in which it occurs
+				List<ValidationResult> pending = new ArrayList<>(batchSize);
 				for (Triple<Integer, ValidationAlgorithm, Future<ValidationResult[]>> result : futureResults) {
 					try {
 						ValidationResult[] ress = result.getZ().get();
 						for (ValidationResult res : ress) {
 							if (res.getQueryID() == null) //This updates the queryID in the object so that it continues on to other algorithms correctly.
 								res = new ValidationResult(result.getX(), res.getArticleID(), res.getValidates(), res.getInvalidates());
-							String stringVer = "(" + res.getQueryID() + ", " + result.getY().getID() + ", " + res.getArticleID() + ") -> (" + res.getValidates() + ", " +
-									(res.getInvalidates() == null ? "null" : res.getInvalidates()) + ")";
+							res.setAlgorithm(result.getY());
 							if (res.getValidates().isNaN() || (res.getInvalidates() != null && res.getInvalidates().isNaN())) {
-								logger.error("Cannot add " + stringVer + " to the database because it has NaN values.");
+								logger.error("Cannot add " + describe(res) + " to the database because it has NaN values.");
 								continue;
 							}
-							stmt.setInt(1, res.getQueryID());
-							stmt.setInt(2, result.getY().getID());
-							stmt.setInt(3, res.getArticleID());
-							stmt.setFloat(4, res.getValidates().floatValue());
-							if (res.getInvalidates() != null)
-								stmt.setFloat(5, res.getInvalidates().floatValue());
-							else
-								stmt.setNull(5, Types.REAL);
-							stmt.executeUpdate();
-							logger.info("Added " + stringVer + " to the database.");
-							res.setAlgorithm(result.getY());
-							results.add(res);
+							bind(stmt, res);
+							stmt.addBatch();
+							pending.add(res);
+							if (pending.size() >= batchSize) {
+								written += writeBatch(stmt, pending, results);
+								batches++;
+							}
 						}
 					}
 					catch (InterruptedException e) {
@@ -322,8 +330,126 @@ public class ValidatorController implements PipelineComponent, Closeable {
 						e.getCause().printStackTrace();
 					}
 				}
+				if (pending.size() > 0) {
+					written += writeBatch(stmt, pending, results);
+					batches++;
+				}
+			}
+			finally {
+				connection.setAutoCommit(autoCommit);
+			}
+			logger.info("Added " + written + " validation results to the database in " + batches + (batches == 1 ? " batch." : " batches."));
+		}
+	}
+	
+	/**
+	 * Executes and commits the rows that have been added to {@code stmt}'s batch. If the batch fails, it is rolled back and
+	 * its rows are written one at a time so that a single bad row does not discard the rest of the batch.
+	 * 
+	 * @param stmt
+	 *            the {@link PreparedStatement} holding the batch
+	 * @param pending
+	 *            the {@link ValidationResult ValidationResults} in the batch in the order in which they were added. This is
+	 *            emptied before this method returns
+	 * @param results
+	 *            the {@link Collection} to which the {@link ValidationResult ValidationResults} that were written are added
+	 * @return the number of {@link ValidationResult ValidationResults} that were written
+	 * @throws SQLException
+	 *             if the batch cannot be rolled back
+	 */
+	private int writeBatch(PreparedStatement stmt, List<ValidationResult> pending, Collection<ValidationResult> results) throws SQLException {
+		int written = 0;
+		try {
+			stmt.executeBatch();
+			connection.commit();
+			written = pending.size();
+			for (ValidationResult res : pending)
+				logWritten(res, results);
+		}
+		catch (SQLException e) {
+			logger.error("Unable to write a batch of " + pending.size() + " validation results.  Retrying them individually.", e);
+			stmt.clearBatch();
+			connection.rollback();
+			for (ValidationResult res : pending) {
+				try {
+					bind(stmt, res);
+					stmt.executeUpdate();
+					connection.commit();
+					written++;
+					logWritten(res, results);
+				}
+				catch (SQLException ex) {
+					connection.rollback();
+					logger.error("Unable to add " + describe(res) + " to the database.", ex);
+				}
+			}
+		}
+		pending.clear();
+		return written;
+	}
+	
+	private void logWritten(ValidationResult res, Collection<ValidationResult> results) {
+		if (logResults)
+			logger.info("Added " + describe(res) + " to the database.");
+		results.add(res);
+	}
+	
+	private static void bind(PreparedStatement stmt, ValidationResult res) throws SQLException {
+		stmt.setInt(1, res.getQueryID());
+		stmt.setInt(2, res.getAlgorithm().getID());
+		stmt.setInt(3, res.getArticleID());
+		stmt.setFloat(4, res.getValidates().floatValue());
+		if (res.getInvalidates() != null)
+			stmt.setFloat(5, res.getInvalidates().floatValue());
+		else
+			stmt.setNull(5, Types.REAL);
+	}
+	
+	private static String describe(ValidationResult res) {
+		return "(" + res.getQueryID() + ", " + res.getAlgorithm().getID() + ", " + res.getArticleID() + ") -> (" + res.getValidates() + ", " +
+				(res.getInvalidates() == null ? "null" : res.getInvalidates()) + ")";
+	}
+	
+	/**
+	 * Loads the results that the one-to-one {@link Validator Validators} have already computed for the given
+	 * {@link Query Queries} and {@link Article Articles} with one query per {@link ArticleManager#ID_CHUNK_SIZE}
+	 * {@link Article Articles} and adds them to {@code results}.
+	 * 
+	 * @param queryIDs
+	 *            the IDs of the {@link Query Queries}
+	 * @param articleIDs
+	 *            the IDs of the {@link Article Articles}
+	 * @param results
+	 *            the {@link Collection} to which the loaded {@link ValidationResult ValidationResults} are added
+	 * @return a {@link Map} from the ID of each one-to-one {@link Validator} to the (query, article) pairs that it has
+	 *         already processed as keys built with {@link LongHashSet#pack(int, int)}
+	 * @throws SQLException
+	 *             if an error occurs while reading from the database
+	 */
+	private Map<Integer, LongHashSet> loadExistingResults(Collection<Integer> queryIDs, Collection<Integer> articleIDs, Collection<ValidationResult> results) throws SQLException {
+		Map<Integer, ValidatorWrapper<?>> oneToOne = new LinkedHashMap<>();
+		for (ValidatorWrapper<?> vw : validators.get(ValidatorType.OneToOne).values())
+			oneToOne.put(vw.getID(), vw);
+		Map<Integer, LongHashSet> existing = new LinkedHashMap<>();
+		if (oneToOne.size() == 0 || queryIDs.size() == 0 || articleIDs.size() == 0)
+			return existing;
+		List<Integer> articles = new ArrayList<>(articleIDs);
+		String statement = "select * from " + resultsTable + " as vr where vr.algorithm = any(?) and vr.query = any(?) and vr.article = any(?)";
+		try (PreparedStatement stmt = connection.prepareStatement(statement)) {
+			stmt.setArray(1, connection.createArrayOf("integer", oneToOne.keySet().toArray()));
+			stmt.setArray(2, connection.createArrayOf("integer", queryIDs.toArray()));
+			for (int i = 0; i < articles.size(); i += ArticleManager.ID_CHUNK_SIZE) {
+				stmt.setArray(3, connection.createArrayOf("integer", articles.subList(i, Math.min(articles.size(), i + ArticleManager.ID_CHUNK_SIZE)).toArray()));
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						ValidatorWrapper<?> vw = oneToOne.get(rs.getInt("algorithm"));
+						if (existing.computeIfAbsent(vw.getID(), k -> new LongHashSet()).add(LongHashSet.pack(rs.getInt("query"), rs.getInt("article"))))
+							results.add(new ValidationResult(rs, vw)); //Add the results for (query, article, algorithm) tuples that we have already processed
+					}
+				}
 			}
 		}
+		return existing;
 	}
 	
 	@Override
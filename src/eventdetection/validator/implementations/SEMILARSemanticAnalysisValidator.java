@@ -20,6 +20,7 @@ import edu.stanford.nlp.ling.*;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.util.CoreMap;
 
+import eventdetection.common.AnnotatorProfile;
 import eventdetection.common.Article;
 import eventdetection.common.POSTagger;
 import eventdetection.common.Query;
@@ -164,13 +165,13 @@ public class SEMILARSemanticAnalysisValidator extends OneToOneValidator {
         
         Double tempScore;
 
-        String title = article.getAnnotatedTitle().toString();
+        String title = article.getAnnotatedTitle(AnnotatorProfile.TOKENS).toString();
         Sentence articleTitle = preprocessor.preprocessSentence(title);
         Double tempTitle = (double) optimumComparerWNLin.computeSimilarity(querySentence, articleTitle);
 
         // Go through each sentence in the given article and compare it to the query. Store the number of articles specified by 
         // MAX_SENTENCES and their scores in a list
-        for (Annotation paragraph : article.getAnnotatedText()) {
+        for (Annotation paragraph : article.getAnnotatedText(AnnotatorProfile.DEPENDENCIES)) { // postProcess reads their dependency graphs
 			List<CoreMap> sentences = paragraph.get(SentencesAnnotation.class);
 			for (CoreMap sentence : sentences) {
                 String sen = POSTagger.reconstructSentence(sentence);
@@ -243,7 +244,7 @@ public class SEMILARSemanticAnalysisValidator extends OneToOneValidator {
 
  
         HashMap<String, String> keywordNouns = new HashMap<String, String>();
-        Annotation taggedQuery = POSTagger.annotate(rawQuery);
+        Annotation taggedQuery = POSTagger.annotate(rawQuery, AnnotatorProfile.POS);
 
         // Store all query nouns in keywordNouns
         for (CoreLabel token: taggedQuery.get(TokensAnnotation.class)){
@@ -290,7 +291,7 @@ public class SEMILARSemanticAnalysisValidator extends OneToOneValidator {
             totalScore = totalScore + calcSentenceScore(combi, count, svolMatches, userQueryParts);
         }    
 
-        Annotation annotatedTitle = POSTagger.annotate(articleTitle);
+        Annotation annotatedTitle = POSTagger.annotate(articleTitle, AnnotatorProfile.DEPENDENCIES);
         CoreMap taggedTitle = annotatedTitle.get(SentencesAnnotation.class).get(0);
         
         // TITLE SCORE
@@ -18,6 +18,7 @@ import toberumono.structures.tuples.Pair;
 import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.util.CoreMap;
+import eventdetection.common.AnnotatorProfile;
 import eventdetection.common.Article;
 import eventdetection.common.POSTagger;
 import eventdetection.common.Query;
@@ -56,7 +57,7 @@ public class SwoogleSemanticAnalysisValidator extends OneToOneValidator {
 		if (query.getIndirectObject() != null && query.getIndirectObject().length() > 0)
 			phrase1.append(" ").append(query.getIndirectObject());
 		SortedList<Pair<Double, String>> topN = new SortedList<>((a, b) -> b.getX().compareTo(a.getX()));
-		for (Annotation paragraph : article.getAnnotatedText()) {
+		for (Annotation paragraph : article.getAnnotatedText(AnnotatorProfile.TOKENS)) {
 			List<CoreMap> sentences = paragraph.get(SentencesAnnotation.class);
 			for (CoreMap sentence : sentences) {
 				String sen = POSTagger.reconstructSentence(sentence);
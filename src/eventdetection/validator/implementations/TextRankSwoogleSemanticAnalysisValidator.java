@@ -51,7 +51,7 @@ public class TextRankSwoogleSemanticAnalysisValidator extends OneToOneValidator
 		if (query.getIndirectObject() != null && query.getIndirectObject().length() > 0)
 			phrase1.append(" ").append(query.getIndirectObject());
 		double average = 0.0, divisor = 0.0;
-		List<Pair<CoreMap, Double>> sentences = TextRank.getRankedSentences(article.getAnnotatedText());
+		List<Pair<CoreMap, Double>> sentences = TextRank.getRankedSentences(article);
 		for (Pair<CoreMap, Double> sentence : sentences) {
 			String sen = POSTagger.reconstructSentence(sentence.getX());
 			String url = String.format("%s&phrase1=%s&phrase2=%s", urlPrefix, URLEncoder.encode(phrase1.toString(), StandardCharsets.UTF_8.name()),